@@ -15,10 +15,14 @@
  */
 package org.openstreetmap.josm.plugins.openstreetcam;
 
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.swing.SwingUtilities;
 import org.openstreetmap.josm.Main;
-import org.openstreetmap.josm.plugins.openstreetcam.argument.Circle;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.plugins.openstreetcam.argument.DataType;
 import org.openstreetmap.josm.plugins.openstreetcam.argument.ListFilter;
 import org.openstreetmap.josm.plugins.openstreetcam.argument.MapViewSettings;
@@ -30,35 +34,46 @@ import org.openstreetmap.josm.plugins.openstreetcam.gui.layer.OpenStreetCamLayer
 import org.openstreetmap.josm.plugins.openstreetcam.util.Util;
 import org.openstreetmap.josm.plugins.openstreetcam.util.cnf.Config;
 import org.openstreetmap.josm.plugins.openstreetcam.util.pref.PreferenceManager;
+import org.openstreetmap.josm.plugins.openstreetcam.util.TaskScheduler;
+import org.openstreetmap.josm.plugins.openstreetcam.util.TaskScheduler.Lane;
 import com.telenav.josm.common.argument.BoundingBox;
-import com.telenav.josm.common.thread.ThreadPool;
 
 
 /**
- * Downloads the data from the current bounding box using the current filters and updates the UI accordingly.
+ * Downloads the data from the current bounding box using the current filters and updates the UI accordingly. Each
+ * update has a generation number; when a newer update starts the downloads of the older updates are interrupted, and
+ * the results of an older update are never published to the layer.
  *
  * @author Beata
  * @version $Revision$
  */
 class DataUpdateThread implements Runnable {
 
+    /** the generation of the newest update */
+    private static final AtomicLong LATEST_GENERATION = new AtomicLong();
+
+    /** the threads that are downloading data, together with the generation of the corresponding update */
+    private static final Map<Thread, Long> RUNNING_UPDATES = new HashMap<>();
+
     private final Boolean checkSelectedPhoto;
+    private final long generation;
 
     DataUpdateThread(final Boolean checkSelectedPhoto) {
         this.checkSelectedPhoto = checkSelectedPhoto;
+        this.generation = LATEST_GENERATION.incrementAndGet();
     }
 
 
     @Override
     public void run() {
         final int zoom = Util.zoom(Main.map.mapView.getRealBounds());
-        if (zoom >= Config.getInstance().getMapSegmentZoom()) {
+        if (isCurrent() && zoom >= Config.getInstance().getMapSegmentZoom()) {
             final MapViewSettings mapViewSettings = PreferenceManager.getInstance().loadMapViewSettings();
             final ListFilter listFilter = PreferenceManager.getInstance().loadListFilter();
 
             if (OpenStreetCamLayer.getInstance().getSelectedSequence() != null) {
                 // special case, we load always photos
-                ThreadPool.getInstance().execute(() -> updatePhotos(mapViewSettings, listFilter));
+                execute(() -> updatePhotos(mapViewSettings, listFilter, zoom));
             } else {
                 if (mapViewSettings.isManualSwitchFlag()) {
                     // change data type only if user changed manually
@@ -85,12 +100,12 @@ class DataUpdateThread implements Runnable {
                 // user zoomed out to segment view
                 PreferenceManager.getInstance().saveDataType(DataType.SEGMENT);
             }
-            ThreadPool.getInstance().execute(() -> updateSegments(mapViewSettings, listFilter, zoom));
+            execute(() -> updateSegments(mapViewSettings, listFilter, zoom));
         } else {
             if (dataType == DataType.PHOTO) {
-                ThreadPool.getInstance().execute(() -> updatePhotos(mapViewSettings, listFilter));
+                execute(() -> updatePhotos(mapViewSettings, listFilter, zoom));
             } else {
-                ThreadPool.getInstance().execute(() -> updateSegments(mapViewSettings, listFilter, zoom));
+                execute(() -> updateSegments(mapViewSettings, listFilter, zoom));
             }
         }
     }
@@ -102,14 +117,63 @@ class DataUpdateThread implements Runnable {
                 // user zoomed out to segment view
                 PreferenceManager.getInstance().saveDataType(DataType.SEGMENT);
             }
-            ThreadPool.getInstance().execute(() -> updateSegments(mapViewSettings, listFilter, zoom));
+            execute(() -> updateSegments(mapViewSettings, listFilter, zoom));
         } else if (zoom >= mapViewSettings.getPhotoZoom()) {
             if (dataType == null || dataType == DataType.SEGMENT) {
                 // user zoomed in to photo view
                 PreferenceManager.getInstance().saveDataType(DataType.PHOTO);
             }
-            ThreadPool.getInstance().execute(() -> updatePhotos(mapViewSettings, listFilter));
+            execute(() -> updatePhotos(mapViewSettings, listFilter, zoom));
+        }
+    }
+
+    /**
+     * Executes the given download in a separate thread. The download is skipped if a newer update was already
+     * started; otherwise the downloads belonging to older updates are interrupted.
+     *
+     * @param update the download to execute
+     */
+    private void execute(final Runnable update) {
+        TaskScheduler.getInstance().execute(Lane.DATA, () -> {
+            if (register()) {
+                try {
+                    update.run();
+                } finally {
+                    unregister();
+                }
+            }
+        });
+    }
+
+    private boolean register() {
+        boolean registered = false;
+        synchronized (RUNNING_UPDATES) {
+            if (isCurrent()) {
+                final Iterator<Map.Entry<Thread, Long>> iterator = RUNNING_UPDATES.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    final Map.Entry<Thread, Long> entry = iterator.next();
+                    if (entry.getValue() < generation) {
+                        entry.getKey().interrupt();
+                        iterator.remove();
+                    }
+                }
+                RUNNING_UPDATES.put(Thread.currentThread(), generation);
+                registered = true;
+            }
+        }
+        return registered;
+    }
+
+    private void unregister() {
+        synchronized (RUNNING_UPDATES) {
+            RUNNING_UPDATES.remove(Thread.currentThread());
         }
+        // clear the interrupted flag, the thread returns to the pool
+        Thread.interrupted();
+    }
+
+    private boolean isCurrent() {
+        return generation == LATEST_GENERATION.get();
     }
 
     private void updateSegments(final MapViewSettings mapViewSettings, final ListFilter filter, final int zoom) {
@@ -126,14 +190,14 @@ class DataUpdateThread implements Runnable {
         final List<BoundingBox> areas = Util.currentBoundingBoxes();
         if (!areas.isEmpty()) {
             final List<Segment> segments = ServiceHandler.getInstance().listMatchedTracks(areas, filter, zoom);
-            if (PreferenceManager.getInstance().loadDataType() == null
-                    || PreferenceManager.getInstance().loadDataType() == DataType.SEGMENT) {
+            if (isCurrent() && (PreferenceManager.getInstance().loadDataType() == null
+                    || PreferenceManager.getInstance().loadDataType() == DataType.SEGMENT)) {
                 updateUI(new DataSet(segments, null), checkSelectedPhoto);
             }
         }
     }
 
-    private void updatePhotos(final MapViewSettings mapViewSettings, final ListFilter filter) {
+    private void updatePhotos(final MapViewSettings mapViewSettings, final ListFilter filter, final int zoom) {
         if (OpenStreetCamLayer.getInstance().getDataSet() != null
                 && OpenStreetCamLayer.getInstance().getDataSet().getSegments() != null) {
             // clear view
@@ -144,10 +208,10 @@ class DataUpdateThread implements Runnable {
                 updateUI(null, false);
             });
         }
-        final List<Circle> areas = Util.currentCircles();
+        final List<Bounds> areas = Util.visibleBounds(Main.map.mapView);
         if (!areas.isEmpty()) {
-            final List<Photo> photos = ServiceHandler.getInstance().listNearbyPhotos(areas, filter);
-            if (PreferenceManager.getInstance().loadDataType() == DataType.PHOTO) {
+            final List<Photo> photos = ServiceHandler.getInstance().listNearbyPhotos(areas, filter, zoom);
+            if (isCurrent() && PreferenceManager.getInstance().loadDataType() == DataType.PHOTO) {
                 updateUI(new DataSet(null, photos), checkSelectedPhoto);
             }
         }
@@ -156,12 +220,15 @@ class DataUpdateThread implements Runnable {
     private void updateUI(final DataSet dataSet, final boolean checkSelectedPhoto) {
         if (Main.map != null && Main.map.mapView != null) {
             SwingUtilities.invokeLater(() -> {
-                OpenStreetCamLayer.getInstance().setDataSet(dataSet, checkSelectedPhoto);
-                if (OpenStreetCamLayer.getInstance().getSelectedPhoto() == null) {
-                    OpenStreetCamDetailsDialog.getInstance().updateUI(null, null);
+                // a newer update might have been started meanwhile
+                if (isCurrent()) {
+                    OpenStreetCamLayer.getInstance().setDataSet(dataSet, checkSelectedPhoto);
+                    if (OpenStreetCamLayer.getInstance().getSelectedPhoto() == null) {
+                        OpenStreetCamDetailsDialog.getInstance().updateUI(null, null);
+                    }
+                    OpenStreetCamLayer.getInstance().invalidate();
+                    Main.map.mapView.repaint();
                 }
-                OpenStreetCamLayer.getInstance().invalidate();
-                Main.map.mapView.repaint();
             });
         }
     }
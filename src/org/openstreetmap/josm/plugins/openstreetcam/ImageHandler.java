@@ -8,21 +8,23 @@
  */
 package org.openstreetmap.josm.plugins.openstreetcam;
 
-import java.awt.image.BufferedImage;
-import java.io.BufferedInputStream;
+import java.awt.Dimension;
+import java.awt.Rectangle;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.util.Set;
+import java.util.Iterator;
 import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.plugins.openstreetcam.argument.PhotoType;
 import org.openstreetmap.josm.plugins.openstreetcam.cache.CacheEntry;
 import org.openstreetmap.josm.plugins.openstreetcam.cache.CacheManager;
+import org.openstreetmap.josm.plugins.openstreetcam.cache.DecodedImage;
 import org.openstreetmap.josm.plugins.openstreetcam.entity.Photo;
 import org.openstreetmap.josm.plugins.openstreetcam.service.ServiceException;
-import org.openstreetmap.josm.plugins.openstreetcam.util.pref.PreferenceManager;
 import com.telenav.josm.common.entity.Pair;
-import com.telenav.josm.common.thread.ThreadPool;
 
 
 /**
@@ -34,6 +36,8 @@ import com.telenav.josm.common.thread.ThreadPool;
 public final class ImageHandler {
 
     private final CacheManager cacheManager = CacheManager.getInstance();
+    /* the size of the last displayed photo; the prefetched photos are decoded for this size */
+    private volatile Dimension displaySize;
     private static final ImageHandler INSTANCE = new ImageHandler();
 
 
@@ -43,26 +47,31 @@ public final class ImageHandler {
 
 
     /**
-     * Loads the photo with the specified properties.
+     * Loads the photo with the specified properties. The photo is decoded with the lowest resolution which still fills
+     * the given display size, in this way a large photo displayed in a small panel takes less time and memory.
      *
      * @param photo a {@code Photo} represents the currently selected object
      * @param type a {@code PhotoType} represents the type of photo to load
-     * @return a pair of ({@code BufferedImage}, {@code Boolean}) representing the corresponding image and boolean flag.
-     * The flag is true if the user requested the high quality image and for some reason the image could not be
-     * retrieved and instead the large thumbnail is retrieved.
+     * @param size the size of the area where the photo is displayed, or null for decoding the full resolution
+     * @return a pair of ({@code DecodedImage}, {@code PhotoType}) representing the corresponding image and its type.
+     * The type is the large thumbnail if the user requested the high quality image and for some reason the image
+     * could not be retrieved.
      * @throws ImageHandlerException if the photo could not be loaded or if the photo content could not be read
      */
-    public Pair<BufferedImage, PhotoType> loadPhoto(final Photo photo, final PhotoType type)
+    public Pair<DecodedImage, PhotoType> loadPhoto(final Photo photo, final PhotoType type, final Dimension size)
             throws ImageHandlerException {
-        Pair<BufferedImage, PhotoType> result;
+        Pair<DecodedImage, PhotoType> result;
         ImageIO.setUseCache(false);
+        if (size != null) {
+            displaySize = new Dimension(size);
+        }
         try {
             if (type.equals(PhotoType.THUMBNAIL)) {
-                result = loadThumbnailPhoto(photo);
+                result = new Pair<>(loadImage(photo, PhotoType.THUMBNAIL, size), PhotoType.THUMBNAIL);
             } else if (type.equals(PhotoType.HIGH_QUALITY)) {
-                result = loadHighQualityPhoto(photo);
+                result = loadHighQualityPhoto(photo, size);
             } else {
-                result = loadLargeThumbnailPhoto(photo);
+                result = new Pair<>(loadImage(photo, PhotoType.LARGE_THUMBNAIL, size), PhotoType.LARGE_THUMBNAIL);
             }
         } catch (final ServiceException e) {
             throw new ImageHandlerException("Could not load photo from server.", e);
@@ -72,87 +81,230 @@ public final class ImageHandler {
         return result;
     }
 
-    private Pair<BufferedImage, PhotoType> loadThumbnailPhoto(final Photo photo) throws ServiceException, IOException {
-        final byte[] byteImage = ServiceHandler.getInstance().retrievePhoto(photo.getThumbnailName());
-        return new Pair<>(ImageIO.read(new BufferedInputStream(new ByteArrayInputStream(byteImage))),
-                PhotoType.THUMBNAIL);
+    /**
+     * Loads a cached lower resolution image of the given photo, which can be displayed while the high quality image is
+     * loading. The large thumbnail is preferred to the thumbnail. Nothing is downloaded, in this way the high quality
+     * image download is not delayed.
+     *
+     * @param photo a {@code Photo} represents the currently selected object
+     * @param size the size of the area where the photo is displayed, or null for decoding the full resolution
+     * @return a pair of ({@code DecodedImage}, {@code PhotoType}) representing the image and its type; the image is
+     * null if neither thumbnail is cached
+     * @throws ImageHandlerException if the photo content could not be read
+     */
+    public Pair<DecodedImage, PhotoType> loadPreviewPhoto(final Photo photo, final Dimension size)
+            throws ImageHandlerException {
+        Pair<DecodedImage, PhotoType> result = new Pair<>(null, null);
+        if (isPhotoCached(photo, PhotoType.LARGE_THUMBNAIL)) {
+            result = loadPhoto(photo, PhotoType.LARGE_THUMBNAIL, size);
+        } else if (isPhotoCached(photo, PhotoType.THUMBNAIL)) {
+            result = loadPhoto(photo, PhotoType.THUMBNAIL, size);
+        }
+        return result;
     }
 
-    private Pair<BufferedImage, PhotoType> loadHighQualityPhoto(final Photo photo)
-            throws IOException, ServiceException {
-        Pair<BufferedImage, PhotoType> result;
-        final CacheEntry image = cacheManager.getPhoto(photo.getSequenceId(), photo.getName());
-        if (image == null) {
+    /**
+     * Decodes a region of the given photo with the lowest resolution which still fills the given display size. The
+     * photo is not downloaded, and the decoded region is not cached.
+     *
+     * @param photo a {@code Photo} represents the currently displayed object
+     * @param type a {@code PhotoType} represents the type of the displayed image
+     * @param region the region to decode, in the coordinates of the full resolution photo
+     * @param size the size of the area where the region is displayed
+     * @return a {@code DecodedImage} object, or null if the photo is not cached
+     * @throws ImageHandlerException if the photo content could not be read
+     */
+    public DecodedImage loadPhotoRegion(final Photo photo, final PhotoType type, final Rectangle region,
+            final Dimension size) throws ImageHandlerException {
+        final CacheEntry entry = cacheManager.getPhoto(photo.getSequenceId(), imageName(photo, type), type);
+        DecodedImage result = null;
+        if (entry != null) {
             try {
-                final byte[] byteImage = ServiceHandler.getInstance().retrievePhoto(photo.getName());
-                cacheManager.putPhoto(photo.getSequenceId(), photo.getName(), byteImage, false);
-                result = new Pair<>(ImageIO.read(new BufferedInputStream(new ByteArrayInputStream(byteImage))),
-                        PhotoType.HIGH_QUALITY);
-            } catch (final ServiceException e) {
-                // load large thumbnail
-                final byte[] byteImage = ServiceHandler.getInstance().retrievePhoto(photo.getLargeThumbnailName());
-                cacheManager.putPhoto(photo.getSequenceId(), photo.getLargeThumbnailName(), byteImage, true);
-                result = new Pair<>(ImageIO.read(new BufferedInputStream(new ByteArrayInputStream(byteImage))),
-                        PhotoType.LARGE_THUMBNAIL);
+                result = read(entry.getContent(), region, size);
+            } catch (final IOException e) {
+                throw new ImageHandlerException("Could not read photo content.", e);
             }
-        } else {
-            result = new Pair<>(ImageIO.read(new BufferedInputStream(new ByteArrayInputStream(image.getContent()))),
-                    PhotoType.HIGH_QUALITY);
         }
         return result;
     }
 
-    private Pair<BufferedImage, PhotoType> loadLargeThumbnailPhoto(final Photo photo)
+    /**
+     * Checks if the image of the given type is cached for the given photo, in this case the image can be loaded
+     * without downloading it.
+     *
+     * @param photo a {@code Photo}
+     * @param type a {@code PhotoType} represents the type of the image
+     * @return true if the image is cached; false otherwise
+     */
+    public boolean isPhotoCached(final Photo photo, final PhotoType type) {
+        return cacheManager.containsPhoto(photo.getSequenceId(), imageName(photo, type), type);
+    }
+
+    private static String imageName(final Photo photo, final PhotoType type) {
+        final String imageName;
+        if (type.equals(PhotoType.THUMBNAIL)) {
+            imageName = photo.getThumbnailName();
+        } else if (type.equals(PhotoType.HIGH_QUALITY)) {
+            imageName = photo.getName();
+        } else {
+            imageName = photo.getLargeThumbnailName();
+        }
+        return imageName;
+    }
+
+    private DecodedImage loadImage(final Photo photo, final PhotoType type, final Dimension size)
             throws ServiceException, IOException {
-        Pair<BufferedImage, PhotoType> result;
-        final CacheEntry image = cacheManager.getPhoto(photo.getSequenceId(), photo.getLargeThumbnailName());
+        final String imageName = imageName(photo, type);
+        DecodedImage image = getDecoded(photo.getSequenceId(), imageName, type, size);
         if (image == null) {
-            final byte[] byteImage = ServiceHandler.getInstance().retrievePhoto(photo.getLargeThumbnailName());
-            cacheManager.putPhoto(photo.getSequenceId(), photo.getLargeThumbnailName(), byteImage, false);
-            result = new Pair<>(ImageIO.read(new BufferedInputStream(new ByteArrayInputStream(byteImage))),
-                    PhotoType.LARGE_THUMBNAIL);
+            final CacheEntry entry = cacheManager.getPhoto(photo.getSequenceId(), imageName, type);
+            byte[] byteImage;
+            if (entry == null) {
+                byteImage = ServiceHandler.getInstance().retrievePhoto(imageName);
+                cacheManager.putPhoto(photo.getSequenceId(), imageName, type, byteImage, false);
+            } else {
+                byteImage = entry.getContent();
+            }
+            image = decode(photo.getSequenceId(), imageName, type, byteImage, size);
+        }
+        return image;
+    }
+
+    private Pair<DecodedImage, PhotoType> loadHighQualityPhoto(final Photo photo, final Dimension size)
+            throws IOException, ServiceException {
+        Pair<DecodedImage, PhotoType> result;
+        final DecodedImage decodedImage =
+                getDecoded(photo.getSequenceId(), photo.getName(), PhotoType.HIGH_QUALITY, size);
+        if (decodedImage != null) {
+            result = new Pair<>(decodedImage, PhotoType.HIGH_QUALITY);
         } else {
-            result = new Pair<>(ImageIO.read(new BufferedInputStream(new ByteArrayInputStream(image.getContent()))),
-                    PhotoType.LARGE_THUMBNAIL);
+            final CacheEntry image =
+                    cacheManager.getPhoto(photo.getSequenceId(), photo.getName(), PhotoType.HIGH_QUALITY);
+            if (image == null) {
+                try {
+                    final byte[] byteImage = ServiceHandler.getInstance().retrievePhoto(photo.getName());
+                    cacheManager.putPhoto(photo.getSequenceId(), photo.getName(), PhotoType.HIGH_QUALITY, byteImage,
+                            false);
+                    result = new Pair<>(decode(photo.getSequenceId(), photo.getName(), PhotoType.HIGH_QUALITY,
+                            byteImage, size), PhotoType.HIGH_QUALITY);
+                } catch (final ServiceException e) {
+                    // load large thumbnail
+                    final byte[] byteImage =
+                            ServiceHandler.getInstance().retrievePhoto(photo.getLargeThumbnailName());
+                    cacheManager.putPhoto(photo.getSequenceId(), photo.getLargeThumbnailName(),
+                            PhotoType.LARGE_THUMBNAIL, byteImage, true);
+                    result = new Pair<>(decode(photo.getSequenceId(), photo.getLargeThumbnailName(),
+                            PhotoType.LARGE_THUMBNAIL, byteImage, size), PhotoType.LARGE_THUMBNAIL);
+                }
+            } else {
+                result = new Pair<>(decode(photo.getSequenceId(), photo.getName(), PhotoType.HIGH_QUALITY,
+                        image.getContent(), size), PhotoType.HIGH_QUALITY);
+            }
         }
         return result;
     }
 
-    /**
-     * Loads the photos corresponding to the given set of elements and saves the loaded data to the cache.
-     *
-     * @param photos a set of {@code Photo}s
-     */
-    public void loadPhotos(final Set<Photo> photos) {
-        final boolean highQualityFlag = PreferenceManager.getInstance().loadPhotoSettings().isHighQualityFlag();
-        for (final Photo photo : photos) {
-            ThreadPool.getInstance().execute(() -> loadPhotoToCache(photo, highQualityFlag));
+    /* returns the cached decoded image if its resolution is enough for the given display size */
+    private DecodedImage getDecoded(final Long sequenceId, final String imageName, final PhotoType type,
+            final Dimension size) {
+        DecodedImage image = cacheManager.getDecodedPhoto(sequenceId, imageName, type);
+        if (image != null && image.getSubsampling() > subsampling(image.getWidth(), image.getHeight(), size)) {
+            image = null;
         }
+        return image;
     }
 
-    private void loadPhotoToCache(final Photo photo, final boolean highQualityFlag) {
+    /* the decoded image is cached, in this way the image is not decoded again if it is displayed one more time */
+    private DecodedImage decode(final Long sequenceId, final String imageName, final PhotoType type,
+            final byte[] content, final Dimension size) throws IOException {
+        final DecodedImage image = read(content, null, size);
+        if (image != null) {
+            cacheManager.putDecodedPhoto(sequenceId, imageName, type, image);
+        }
+        return image;
+    }
+
+    /* decodes the given region, or the whole photo if the region is null, skipping the pixels not needed */
+    private static DecodedImage read(final byte[] content, final Rectangle region, final Dimension size)
+            throws IOException {
+        DecodedImage result = null;
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(content))) {
+            final Iterator<ImageReader> readers = in != null ? ImageIO.getImageReaders(in) : null;
+            if (readers != null && readers.hasNext()) {
+                final ImageReader reader = readers.next();
+                try {
+                    reader.setInput(in, true, true);
+                    final Rectangle bounds = new Rectangle(reader.getWidth(0), reader.getHeight(0));
+                    final Rectangle sourceRegion = region != null ? region.intersection(bounds) : bounds;
+                    if (!sourceRegion.isEmpty()) {
+                        final int subsampling = subsampling(sourceRegion.width, sourceRegion.height, size);
+                        final ImageReadParam param = reader.getDefaultReadParam();
+                        param.setSourceRegion(sourceRegion);
+                        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                        result = new DecodedImage(reader.read(0, param), bounds.width, bounds.height, sourceRegion,
+                                subsampling);
+                    }
+                } finally {
+                    reader.dispose();
+                }
+            }
+        }
+        return result;
+    }
+
+    /* the largest subsampling for which the decoded image still covers the display size */
+    private static int subsampling(final int width, final int height, final Dimension size) {
+        int subsampling = 1;
+        if (size != null && size.width > 0 && size.height > 0) {
+            subsampling = Math.max(1, Math.min(width / size.width, height / size.height));
+        }
+        return subsampling;
+    }
+
+    /**
+     * Loads the given photo and saves the loaded data to the cache. The photo is not loaded if it is already cached.
+     *
+     * @param photo a {@code Photo}
+     * @param highQualityFlag if true the high quality image is loaded, otherwise the large thumbnail
+     */
+    void loadPhotoToCache(final Photo photo, final boolean highQualityFlag) {
         if (highQualityFlag) {
-            // retrieve and save high quality image
-            try {
-                final byte[] byteImage = ServiceHandler.getInstance().retrievePhoto(photo.getName());
-                cacheManager.putPhoto(photo.getSequenceId(), photo.getName(), byteImage, false);
-            } catch (final Exception e) {
-                // try to load large thumbnail
+            if (!cacheManager.containsPhoto(photo.getSequenceId(), photo.getName(), PhotoType.HIGH_QUALITY)) {
+                // retrieve and save high quality image
                 try {
-                    final byte[] byteImage = ServiceHandler.getInstance().retrievePhoto(photo.getLargeThumbnailName());
-                    cacheManager.putPhoto(photo.getSequenceId(), photo.getLargeThumbnailName(), byteImage, true);
-                } catch (final Exception e2) {
-                    Main.warn(e2, "Error loading image:" + photo.getLargeThumbnailName());
+                    final byte[] byteImage = ServiceHandler.getInstance().retrievePhoto(photo.getName());
+                    cacheManager.putPhoto(photo.getSequenceId(), photo.getName(), PhotoType.HIGH_QUALITY, byteImage,
+                            false);
+                    decodeToCache(photo.getSequenceId(), photo.getName(), PhotoType.HIGH_QUALITY, byteImage);
+                } catch (final Exception e) {
+                    // try to load large thumbnail
+                    loadLargeThumbnailToCache(photo, true);
                 }
             }
-        } else {
+        } else if (!cacheManager.containsPhoto(photo.getSequenceId(), photo.getLargeThumbnailName(),
+                PhotoType.LARGE_THUMBNAIL)) {
             // retrieve and save large thumbnail
-            try {
-                final byte[] byteImage = ServiceHandler.getInstance().retrievePhoto(photo.getLargeThumbnailName());
-                cacheManager.putPhoto(photo.getSequenceId(), photo.getLargeThumbnailName(), byteImage, false);
-            } catch (final Exception e2) {
-                Main.warn(e2, "Error loading image:" + photo.getLargeThumbnailName());
-            }
+            loadLargeThumbnailToCache(photo, false);
+        }
+    }
+
+    private void loadLargeThumbnailToCache(final Photo photo, final boolean warning) {
+        try {
+            final byte[] byteImage = ServiceHandler.getInstance().retrievePhoto(photo.getLargeThumbnailName());
+            cacheManager.putPhoto(photo.getSequenceId(), photo.getLargeThumbnailName(), PhotoType.LARGE_THUMBNAIL,
+                    byteImage, warning);
+            decodeToCache(photo.getSequenceId(), photo.getLargeThumbnailName(), PhotoType.LARGE_THUMBNAIL, byteImage);
+        } catch (final Exception e) {
+            Main.warn(e, "Error loading image:" + photo.getLargeThumbnailName());
+        }
+    }
+
+    private void decodeToCache(final Long sequenceId, final String imageName, final PhotoType type,
+            final byte[] content) {
+        try {
+            decode(sequenceId, imageName, type, content, displaySize);
+        } catch (final IOException e) {
+            Main.warn(e, "Error decoding image:" + imageName);
         }
     }
 }
\ No newline at end of file
@@ -43,11 +43,13 @@ import org.openstreetmap.josm.plugins.openstreetcam.gui.layer.OpenStreetCamLayer
 import org.openstreetmap.josm.plugins.openstreetcam.gui.preferences.PreferenceEditor;
 import org.openstreetmap.josm.plugins.openstreetcam.observer.DataTypeChangeObserver;
 import org.openstreetmap.josm.plugins.openstreetcam.observer.LocationObserver;
+import org.openstreetmap.josm.plugins.openstreetcam.service.ServiceExecutor;
 import org.openstreetmap.josm.plugins.openstreetcam.util.cnf.GuiConfig;
 import org.openstreetmap.josm.plugins.openstreetcam.util.cnf.IconConfig;
 import org.openstreetmap.josm.plugins.openstreetcam.util.pref.PreferenceManager;
+import org.openstreetmap.josm.plugins.openstreetcam.util.TaskScheduler;
+import org.openstreetmap.josm.plugins.openstreetcam.util.TaskScheduler.Lane;
 import org.openstreetmap.josm.tools.ImageProvider;
-import com.telenav.josm.common.thread.ThreadPool;
 
 
 /**
@@ -115,11 +117,8 @@ implements DataTypeChangeObserver, LayerChangeListener, LocationObserver, ZoomCh
             Main.pref.removePreferenceChangeListener(preferenceChangedHandler);
             layerActivatorMenuItem.setEnabled(false);
             OpenStreetCamDetailsDialog.destroyInstance();
-            try {
-                ThreadPool.getInstance().shutdown();
-            } catch (final InterruptedException e) {
-                Main.error(e, "Could not shutdown thead pool.");
-            }
+            ServiceExecutor.getInstance().shutdown();
+            TaskScheduler.getInstance().shutdown();
         }
     }
 
@@ -140,7 +139,7 @@ implements DataTypeChangeObserver, LayerChangeListener, LocationObserver, ZoomCh
     @Override
     public void update(final DataType dataType) {
         PreferenceManager.getInstance().saveDataType(dataType);
-        ThreadPool.getInstance().execute(new DataUpdateThread(true));
+        TaskScheduler.getInstance().execute(Lane.DATA, new DataUpdateThread(true));
     }
 
 
@@ -198,7 +197,8 @@ implements DataTypeChangeObserver, LayerChangeListener, LocationObserver, ZoomCh
         } else {
             if (Main.map != null && Main.map.mapView != null) {
                 zoomTimer =
-                        new Timer(SEARCH_DELAY, event -> ThreadPool.getInstance().execute(new DataUpdateThread(false)));
+                        new Timer(SEARCH_DELAY,
+                                event -> TaskScheduler.getInstance().execute(Lane.DATA, new DataUpdateThread(false)));
                 zoomTimer.setRepeats(false);
                 zoomTimer.start();
             }
@@ -281,7 +281,7 @@ implements DataTypeChangeObserver, LayerChangeListener, LocationObserver, ZoomCh
                 OpenStreetCamLayer.getInstance().invalidate();
                 Main.map.mapView.repaint();
             });
-            ThreadPool.getInstance().execute(new DataUpdateThread(true));
+            TaskScheduler.getInstance().execute(Lane.DATA, new DataUpdateThread(true));
         }
 
 
@@ -295,7 +295,7 @@ implements DataTypeChangeObserver, LayerChangeListener, LocationObserver, ZoomCh
                 OpenStreetCamLayer.getInstance().invalidate();
                 Main.map.mapView.repaint();
             });
-            ThreadPool.getInstance().execute(new DataUpdateThread(true));
+            TaskScheduler.getInstance().execute(Lane.DATA, new DataUpdateThread(true));
         }
 
         private void handleHighQualityPhotoSelection() {
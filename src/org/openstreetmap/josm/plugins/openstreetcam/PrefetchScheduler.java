@@ -0,0 +1,185 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openstreetmap.josm.plugins.openstreetcam.argument.AutoplaySettings;
+import org.openstreetmap.josm.plugins.openstreetcam.argument.CacheSettings;
+import org.openstreetmap.josm.plugins.openstreetcam.entity.Photo;
+import org.openstreetmap.josm.plugins.openstreetcam.gui.layer.OpenStreetCamLayer;
+import org.openstreetmap.josm.plugins.openstreetcam.util.TaskScheduler;
+import org.openstreetmap.josm.plugins.openstreetcam.util.TaskScheduler.Lane;
+import org.openstreetmap.josm.plugins.openstreetcam.util.cnf.Config;
+import org.openstreetmap.josm.plugins.openstreetcam.util.pref.PreferenceManager;
+
+
+/**
+ * Prefetches the photos which are likely to be displayed after the selected photo. The candidates are ranked by the
+ * number of steps the user needs for reaching them: the sequence photos ahead in the travel direction come first, the
+ * ones behind and the nearby photos of other sequences (ranked by distance) come later. During autoplay only the
+ * photos ahead are prefetched, as many as are displayed while a photo is downloaded.
+ * <p>
+ * The photos are downloaded in rank order by the background lane of the {@code TaskScheduler}. If the selection
+ * changes, the downloads not started yet are dropped.
+ *
+ * @author beataj
+ * @version $Revision$
+ */
+public final class PrefetchScheduler {
+
+    /* a photo behind the travel direction is needed later than a photo ahead at the same number of steps */
+    private static final int BEHIND_WEIGHT = 2;
+    /* the usual distance in meters between two photos of a sequence, converts a distance to a number of steps */
+    private static final double PHOTO_DISTANCE = 10;
+
+    private static final PrefetchScheduler INSTANCE = new PrefetchScheduler();
+
+    private final List<Future<?>> pendingTasks = new ArrayList<>();
+    private final AtomicInteger generation = new AtomicInteger();
+    private Photo previousPhoto;
+    private volatile AutoplaySettings autoplaySettings;
+
+
+    private PrefetchScheduler() {}
+
+
+    public static PrefetchScheduler getInstance() {
+        return INSTANCE;
+    }
+
+
+    /**
+     * Sets the settings of the running autoplay.
+     *
+     * @param autoplaySettings the {@code AutoplaySettings} of the running autoplay, null if autoplay is stopped
+     */
+    public void setAutoplaySettings(final AutoplaySettings autoplaySettings) {
+        this.autoplaySettings = autoplaySettings;
+    }
+
+    /**
+     * Prefetches the photos which are likely to be displayed after the given photo. The prefetches scheduled for the
+     * previously selected photo are cancelled, unless they already started. This method should be called after the
+     * given photo was selected in the layer.
+     *
+     * @param photo the selected {@code Photo}
+     */
+    public synchronized void prefetch(final Photo photo) {
+        final int currentGeneration = nextGeneration();
+        final boolean highQualityFlag = PreferenceManager.getInstance().loadPhotoSettings().isHighQualityFlag();
+        for (final Photo candidate : rank(photo)) {
+            pendingTasks.add(TaskScheduler.getInstance().execute(Lane.BACKGROUND, () -> {
+                if (generation.get() == currentGeneration) {
+                    ImageHandler.getInstance().loadPhotoToCache(candidate, highQualityFlag);
+                }
+            }));
+        }
+        previousPhoto = photo;
+    }
+
+    /**
+     * Cancels the prefetches which did not start yet. This method should be called if the photo is deselected.
+     */
+    public synchronized void cancel() {
+        nextGeneration();
+        previousPhoto = null;
+    }
+
+    /* drops the queued prefetches; a prefetch already taken from the queue sees the new generation and is skipped */
+    private int nextGeneration() {
+        final int result = generation.incrementAndGet();
+        for (final Future<?> task : pendingTasks) {
+            task.cancel(false);
+        }
+        pendingTasks.clear();
+        TaskScheduler.getInstance().purge(Lane.BACKGROUND);
+        return result;
+    }
+
+    private List<Photo> rank(final Photo photo) {
+        final CacheSettings cacheSettings = PreferenceManager.getInstance().loadCacheSettings();
+        final AutoplaySettings autoplay = autoplaySettings;
+        final OpenStreetCamLayer layer = OpenStreetCamLayer.getInstance();
+        final List<Candidate> candidates = new ArrayList<>();
+        final int direction = autoplay != null ? 1 : direction(photo);
+        final int aheadCount = autoplay != null ? autoplayAheadCount(autoplay, cacheSettings.getPrevNextCount())
+                : cacheSettings.getPrevNextCount();
+        final int behindCount = autoplay != null ? 0 : cacheSettings.getPrevNextCount();
+        // with unknown direction the next photos come before the previous ones having the same rank
+        final int forward = direction >= 0 ? 1 : -1;
+        final int behindWeight = direction == 0 ? 1 : BEHIND_WEIGHT;
+        for (int i = 1; i <= Math.max(aheadCount, behindCount); i++) {
+            if (i <= aheadCount) {
+                addCandidate(candidates, layer.sequencePhoto(photo.getSequenceIndex() + forward * i), i);
+            }
+            if (i <= behindCount) {
+                addCandidate(candidates, layer.sequencePhoto(photo.getSequenceIndex() - forward * i),
+                        (double) i * behindWeight);
+            }
+        }
+        if (autoplay == null) {
+            for (final Photo nearbyPhoto : layer.nearbyPhotos(cacheSettings.getNearbyCount())) {
+                addCandidate(candidates, nearbyPhoto,
+                        1 + photo.getLocation().greatCircleDistance(nearbyPhoto.getLocation()) / PHOTO_DISTANCE);
+            }
+        }
+        candidates.sort(Comparator.comparingDouble(candidate -> candidate.rank));
+        final List<Photo> result = new ArrayList<>(candidates.size());
+        for (final Candidate candidate : candidates) {
+            result.add(candidate.photo);
+        }
+        return result;
+    }
+
+    /* returns the direction of the last step in the same sequence: 1 forward, -1 backward and 0 if unknown */
+    private int direction(final Photo photo) {
+        int direction = 0;
+        if (previousPhoto != null && previousPhoto.getSequenceId() != null
+                && previousPhoto.getSequenceId().equals(photo.getSequenceId())) {
+            direction = Integer.signum(photo.getSequenceIndex() - previousPhoto.getSequenceIndex());
+        }
+        return direction;
+    }
+
+    /* the photos displayed while a photo is downloaded should be already cached */
+    private static int autoplayAheadCount(final AutoplaySettings autoplay, final int prevNextCount) {
+        int count = prevNextCount;
+        if (autoplay.getDelay() != null && autoplay.getDelay() > 0) {
+            final int downloadTime = Config.getInstance().getPrefetchDownloadTime();
+            count = Math.max(count, (downloadTime + autoplay.getDelay() - 1) / autoplay.getDelay() + 1);
+        }
+        count = Math.min(count, Config.getInstance().getPrefetchMaxAhead());
+        if (autoplay.getLength() != null && autoplay.getLength() > 0) {
+            count = Math.min(count, autoplay.getLength());
+        }
+        return count;
+    }
+
+    private static void addCandidate(final List<Candidate> candidates, final Photo photo, final double rank) {
+        if (photo != null) {
+            candidates.add(new Candidate(photo, rank));
+        }
+    }
+
+
+    private static final class Candidate {
+
+        private final Photo photo;
+        private final double rank;
+
+        private Candidate(final Photo photo, final double rank) {
+            this.photo = photo;
+            this.rank = rank;
+        }
+    }
+}
@@ -13,7 +13,6 @@ import java.awt.event.MouseEvent;
 import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 import org.openstreetmap.josm.Main;
-import org.openstreetmap.josm.plugins.openstreetcam.argument.CacheSettings;
 import org.openstreetmap.josm.plugins.openstreetcam.argument.PhotoSettings;
 import org.openstreetmap.josm.plugins.openstreetcam.argument.PhotoType;
 import org.openstreetmap.josm.plugins.openstreetcam.cache.CacheManager;
@@ -26,7 +25,8 @@ import org.openstreetmap.josm.plugins.openstreetcam.observer.SequenceObserver;
 import org.openstreetmap.josm.plugins.openstreetcam.util.Util;
 import org.openstreetmap.josm.plugins.openstreetcam.util.cnf.Config;
 import org.openstreetmap.josm.plugins.openstreetcam.util.pref.PreferenceManager;
-import com.telenav.josm.common.thread.ThreadPool;
+import org.openstreetmap.josm.plugins.openstreetcam.util.TaskScheduler;
+import org.openstreetmap.josm.plugins.openstreetcam.util.TaskScheduler.Lane;
 
 
 /**
@@ -38,6 +38,9 @@ import com.telenav.josm.common.thread.ThreadPool;
 final class SelectionHandler extends MouseAdapter implements ClosestPhotoObserver, SequenceObserver {
 
     private static final int UNSELECT_CLICK_COUNT = 2;
+    /* keys of the interactive tasks, a newer hover or selection supersedes the queued one */
+    private static final String HOVER_TASK = "hover";
+    private static final String SELECTION_TASK = "selection";
     private Timer mouseHoverTimer;
 
     SelectionHandler() {}
@@ -63,7 +66,7 @@ final class SelectionHandler extends MouseAdapter implements ClosestPhotoObserve
         if (layer.getSelectedPhoto() != null) {
             selectPhoto(null, null);
             layer.selectStartPhotoForClosestAction(null);
-            ThreadPool.getInstance().execute(new DataUpdateThread(true));
+            TaskScheduler.getInstance().execute(Lane.DATA, new DataUpdateThread(true));
         }
     }
 
@@ -119,7 +122,8 @@ final class SelectionHandler extends MouseAdapter implements ClosestPhotoObserve
                 mouseHoverTimer.restart();
             } else {
                 mouseHoverTimer = new Timer(PreferenceManager.getInstance().loadPhotoSettings().getMouseHoverDelay(),
-                        event -> ThreadPool.getInstance().execute(() -> handleMouseHover(e)));
+                        event -> TaskScheduler.getInstance().execute(Lane.INTERACTIVE, HOVER_TASK,
+                                () -> handleMouseHover(e)));
                 mouseHoverTimer.setRepeats(false);
                 mouseHoverTimer.start();
             }
@@ -156,6 +160,7 @@ final class SelectionHandler extends MouseAdapter implements ClosestPhotoObserve
         final OpenStreetCamLayer layer = OpenStreetCamLayer.getInstance();
         final OpenStreetCamDetailsDialog detailsDialog = OpenStreetCamDetailsDialog.getInstance();
         if (photo == null) {
+            PrefetchScheduler.getInstance().cancel();
             CacheManager.getInstance().removePhotos(layer.getSelectedPhoto().getSequenceId());
             layer.setSelectedSequence(null);
             layer.setSelectedPhoto(null);
@@ -168,16 +173,12 @@ final class SelectionHandler extends MouseAdapter implements ClosestPhotoObserve
             Main.map.mapView.repaint();
         } else {
             SwingUtilities.invokeLater(() -> {
-                ThreadPool.getInstance().execute(() -> {
-                    final CacheSettings cacheSettings = PreferenceManager.getInstance().loadCacheSettings();
-                    ImageHandler.getInstance().loadPhotos(
-                            layer.nearbyPhotos(cacheSettings.getPrevNextCount(), cacheSettings.getNearbyCount()));
-                });
                 layer.setSelectedPhoto(photo);
+                PrefetchScheduler.getInstance().prefetch(photo);
                 layer.invalidate();
                 Main.map.mapView.repaint();
             });
-            ThreadPool.getInstance().execute(() -> {
+            TaskScheduler.getInstance().execute(Lane.INTERACTIVE, SELECTION_TASK, () -> {
                 if (!detailsDialog.getButton().isSelected()) {
                     detailsDialog.getButton().doClick();
                 }
@@ -211,7 +212,7 @@ final class SelectionHandler extends MouseAdapter implements ClosestPhotoObserve
                 Main.map.mapView.repaint();
             });
         }
-        ThreadPool.getInstance().execute(() -> {
+        TaskScheduler.getInstance().execute(Lane.SEQUENCE, () -> {
 
             final Sequence sequence = ServiceHandler.getInstance().retrieveSequence(photo.getSequenceId());
             if (photo.equals(layer.getSelectedPhoto()) && sequence != null && sequence.hasPhotos()) {
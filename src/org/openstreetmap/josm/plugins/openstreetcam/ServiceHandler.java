@@ -10,23 +10,28 @@ package org.openstreetmap.josm.plugins.openstreetcam;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import javax.swing.JOptionPane;
 import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.gui.JosmUserIdentityManager;
 import org.openstreetmap.josm.plugins.openstreetcam.argument.Circle;
 import org.openstreetmap.josm.plugins.openstreetcam.argument.ListFilter;
+import org.openstreetmap.josm.plugins.openstreetcam.cache.SequenceCache;
+import org.openstreetmap.josm.plugins.openstreetcam.cache.TileCache;
+import org.openstreetmap.josm.plugins.openstreetcam.cache.TileKey;
 import org.openstreetmap.josm.plugins.openstreetcam.entity.Photo;
 import org.openstreetmap.josm.plugins.openstreetcam.entity.Segment;
 import org.openstreetmap.josm.plugins.openstreetcam.entity.Sequence;
+import org.openstreetmap.josm.plugins.openstreetcam.service.ConditionalResponse;
 import org.openstreetmap.josm.plugins.openstreetcam.service.Service;
 import org.openstreetmap.josm.plugins.openstreetcam.service.ServiceException;
+import org.openstreetmap.josm.plugins.openstreetcam.service.ServiceExecutor;
+import org.openstreetmap.josm.plugins.openstreetcam.util.cnf.Config;
 import org.openstreetmap.josm.plugins.openstreetcam.util.cnf.GuiConfig;
 import org.openstreetmap.josm.plugins.openstreetcam.util.pref.PreferenceManager;
 import com.telenav.josm.common.argument.BoundingBox;
@@ -43,9 +48,13 @@ final class ServiceHandler {
 
     private static final ServiceHandler INSTANCE = new ServiceHandler();
     private final Service service;
+    private final TileCache<Photo> photoTileCache;
+    private final TileCache<Segment> segmentTileCache;
 
     private ServiceHandler() {
         service = new Service();
+        photoTileCache = new TileCache<>();
+        segmentTileCache = new TileCache<>();
     }
 
 
@@ -55,33 +64,42 @@ final class ServiceHandler {
 
 
     /**
-     * Lists the photos from the current area based on the given filters.
+     * Lists the photos from the current area based on the given filters. Starting from the photo zoom level the photos
+     * are downloaded by slippy map tiles, and only the tiles that are not present in the tile cache are downloaded.
      *
-     * @param areas a list of {@code Circle}s representing the search areas. If the OsmDataLayer is active, there might
+     * @param areas a list of {@code Bounds}s representing the search areas. If the OsmDataLayer is active, there might
      * be several bounds.
      * @param filter a {@code Filter} represents the user's search filters. Null values are ignored.
+     * @param zoom the current zoom level
      * @return a list of {@code Photo}s
      */
-    List<Photo> listNearbyPhotos(final List<Circle> areas, final ListFilter filter) {
+    List<Photo> listNearbyPhotos(final List<Bounds> areas, final ListFilter filter, final int zoom) {
         final Long osmUserId = osmUserId(filter);
-        final Date date = filter != null ? filter.getDate() : null;
-        List<Photo> finalResult = new ArrayList<>();
+        final Set<Photo> finalResult = new LinkedHashSet<>();
         try {
-            if (areas.size() > 1) {
-                // special case: there are several different areas visible in the OSM data layer
-                final ExecutorService executor = Executors.newFixedThreadPool(areas.size());
+            if (zoom >= Config.getInstance().getMapPhotoZoom()) {
+                final Set<TileKey> tiles = new LinkedHashSet<>();
+                for (final Bounds area : areas) {
+                    tiles.addAll(TileKey.covering(new BoundingBox(area.getMaxLat(), area.getMinLat(),
+                            area.getMaxLon(), area.getMinLon()), Config.getInstance().getNearbyPhotosTileZoom(),
+                            Config.getInstance().getNearbyPhotosTileZoom(), filter, osmUserId));
+                }
+                finalResult.addAll(listTileItems(tiles, photoTileCache, this::listNearbyPhotos));
+            } else {
+                // a sequence is selected, the photos are loaded from a larger area
+                final Date date = filter != null ? filter.getDate() : null;
                 final List<Future<List<Photo>>> futures = new ArrayList<>();
-                for (final Circle circle : areas) {
-                    final Callable<List<Photo>> callable = () -> service.listNearbyPhotos(circle, date, osmUserId);
-                    futures.add(executor.submit(callable));
+                for (final Bounds area : areas) {
+                    final Callable<List<Photo>> callable =
+                            () -> service.listNearbyPhotos(new Circle(area), date, osmUserId);
+                    futures.add(ServiceExecutor.getInstance().submit(callable));
                 }
                 finalResult.addAll(readResult(futures));
-                executor.shutdown();
-            } else {
-                finalResult = service.listNearbyPhotos(areas.get(0), date, osmUserId);
             }
         } catch (final ServiceException e) {
-            if (!PreferenceManager.getInstance().loadPhotosErrorSuppressFlag()) {
+            // an interrupted download was cancelled by a newer data update, it is not an error
+            if (!Thread.currentThread().isInterrupted()
+                    && !PreferenceManager.getInstance().loadPhotosErrorSuppressFlag()) {
                 final int val = JOptionPane.showOptionDialog(Main.map.mapView,
                         GuiConfig.getInstance().getErrorPhotoListTxt(), GuiConfig.getInstance().getErrorTitle(),
                         JOptionPane.YES_NO_OPTION, JOptionPane.PLAIN_MESSAGE, null, null, null);
@@ -90,12 +108,13 @@ final class ServiceHandler {
             }
         }
 
-        return finalResult;
+        return new ArrayList<>(finalResult);
     }
 
     /**
      * Lists the segments that have OpenStreetCam coverage from the given area(s) corresponding to the specified zoom
-     * level.
+     * level. The segments are downloaded by slippy map tiles; only the tiles that are not present in the tile cache are
+     * downloaded.
      *
      * @param areas a list of {@code BoundingBox}s representing the search areas. If the OsmDataLayer is active, there
      * might be several bounding boxes.
@@ -104,24 +123,20 @@ final class ServiceHandler {
      * @return a list of {@code Segment}s
      */
     List<Segment> listMatchedTracks(final List<BoundingBox> areas, final ListFilter filter, final int zoom) {
-        List<Segment> finalResult = new ArrayList<>();
         final Long osmUserId = osmUserId(filter);
+        final int tileZoom = Math.max(0, zoom - Config.getInstance().getTracksTileZoomOffset());
+        final Set<TileKey> tiles = new LinkedHashSet<>();
+        for (final BoundingBox area : areas) {
+            // the matched tracks do not depend on the other filters
+            tiles.addAll(TileKey.covering(area, tileZoom, zoom, null, osmUserId));
+        }
+        final Set<Segment> finalResult = new HashSet<>();
         try {
-            if (areas.size() > 1) {
-                // special case: there are several different areas visible in the OSM data layer
-                final ExecutorService executor = Executors.newFixedThreadPool(areas.size());
-                final List<Future<List<Segment>>> futures = new ArrayList<>();
-                for (final BoundingBox bbox : areas) {
-                    final Callable<List<Segment>> callable = () -> service.listMatchedTracks(bbox, osmUserId, zoom);
-                    futures.add(executor.submit(callable));
-                }
-                finalResult.addAll(readResult(futures));
-                executor.shutdown();
-            } else {
-                finalResult = service.listMatchedTracks(areas.get(0), osmUserId, zoom);
-            }
+            finalResult.addAll(listTileItems(tiles, segmentTileCache, this::listMatchedTracks));
         } catch (final ServiceException e) {
-            if (!PreferenceManager.getInstance().loadPhotosErrorSuppressFlag()) {
+            // an interrupted download was cancelled by a newer data update, it is not an error
+            if (!Thread.currentThread().isInterrupted()
+                    && !PreferenceManager.getInstance().loadPhotosErrorSuppressFlag()) {
                 final int val = JOptionPane.showOptionDialog(Main.map.mapView,
                         GuiConfig.getInstance().getErrorPhotoListTxt(), GuiConfig.getInstance().getErrorTitle(),
                         JOptionPane.YES_NO_OPTION, JOptionPane.PLAIN_MESSAGE, null, null, null);
@@ -129,9 +144,61 @@ final class ServiceHandler {
                 PreferenceManager.getInstance().savePhotosErrorSuppressFlag(flag);
             }
         }
-        return finalResult;
+        return new ArrayList<>(finalResult);
     }
 
+    /**
+     * Returns the items of the given tiles. The cached tiles are read from the cache, the other tiles are downloaded
+     * in parallel and added to the cache.
+     */
+    private <T> List<T> listTileItems(final Set<TileKey> tiles, final TileCache<T> cache, final TileLoader<T> loader)
+            throws ServiceException {
+        final List<T> result = new ArrayList<>();
+        final List<TileKey> missingTiles = new ArrayList<>();
+        for (final TileKey tile : tiles) {
+            final List<T> items = cache.get(tile);
+            if (items != null) {
+                result.addAll(items);
+            } else {
+                missingTiles.add(tile);
+            }
+        }
+        if (missingTiles.size() > 1) {
+            final List<Future<List<T>>> futures = new ArrayList<>();
+            for (final TileKey tile : missingTiles) {
+                final Callable<List<T>> callable = () -> loader.load(tile);
+                futures.add(ServiceExecutor.getInstance().submit(callable));
+            }
+            for (final List<T> items : ServiceExecutor.getInstance().readResults(futures)) {
+                result.addAll(items);
+            }
+        } else if (!missingTiles.isEmpty()) {
+            result.addAll(loader.load(missingTiles.get(0)));
+        }
+        return result;
+    }
+
+    private List<Photo> listNearbyPhotos(final TileKey tile) throws ServiceException {
+        final BoundingBox area = tile.getBoundingBox();
+        final Bounds bounds = new Bounds(area.getSouth(), area.getWest(), area.getNorth(), area.getEast());
+        final Date date = tile.getFilter() != null ? tile.getFilter().getDate() : null;
+        final List<Photo> photos = new ArrayList<>();
+        // the service searches in the circle around the tile, keep only the photos from the tile
+        for (final Photo photo : service.listNearbyPhotos(new Circle(bounds), date, tile.getOsmUserId())) {
+            if (bounds.contains(photo.getLocation())) {
+                photos.add(photo);
+            }
+        }
+        photoTileCache.put(tile, photos);
+        return photos;
+    }
+
+    private List<Segment> listMatchedTracks(final TileKey tile) throws ServiceException {
+        final List<Segment> segments =
+                service.listMatchedTracks(tile.getBoundingBox(), tile.getOsmUserId(), tile.getZoom());
+        segmentTileCache.put(tile, segments);
+        return segments;
+    }
 
     private Long osmUserId(final ListFilter filter) {
         Long osmUserId = null;
@@ -144,28 +211,45 @@ final class ServiceHandler {
 
     private <T> Set<T> readResult(final List<Future<List<T>>> futures) throws ServiceException {
         final Set<T> result = new HashSet<>();
-        for (final Future<List<T>> future : futures) {
-            try {
-                result.addAll(future.get());
-            } catch (InterruptedException | ExecutionException e) {
-                throw new ServiceException(e);
-            }
+        for (final List<T> items : ServiceExecutor.getInstance().readResults(futures)) {
+            result.addAll(items);
         }
         return result;
     }
 
     /**
-     * Retries the sequence corresponding to the given identifier
+     * Retries the sequence corresponding to the given identifier. A recently cached sequence is returned without
+     * asking the server; an older cached sequence is revalidated with a conditional request, and it is also returned
+     * if the server can not be reached.
      *
      * @param id a sequence identifier
      * @return a {@code Sequence}
      */
     Sequence retrieveSequence(final Long id) {
-        Sequence sequence = null;
+        final SequenceCache.Entry cached = SequenceCache.getInstance().get(id);
+        Sequence sequence = cached != null && cached.isFresh() ? cached.getSequence() : null;
         try {
-            sequence = service.retrieveSequence(id);
+            if (sequence == null) {
+                final ConditionalResponse<Sequence> response = cached != null
+                        ? service.retrieveSequence(id, cached.getEntityTag(), cached.getLastModified())
+                        : service.retrieveSequence(id, null, null);
+                if (response.isNotModified()) {
+                    SequenceCache.getInstance().touch(id);
+                    sequence = cached.getSequence();
+                } else {
+                    sequence = response.getContent();
+                    if (sequence != null && sequence.hasPhotos()) {
+                        SequenceCache.getInstance().put(sequence, response.getEntityTag(),
+                                response.getLastModified());
+                    } else if (sequence == null && cached != null) {
+                        sequence = cached.getSequence();
+                    }
+                }
+            }
         } catch (final ServiceException e) {
-            if (!PreferenceManager.getInstance().loadSequenceErrorSuppressFlag()) {
+            if (cached != null) {
+                sequence = cached.getSequence();
+            } else if (!PreferenceManager.getInstance().loadSequenceErrorSuppressFlag()) {
                 final int val = JOptionPane.showOptionDialog(Main.map.mapView,
                         GuiConfig.getInstance().getErrorSequenceTxt(), GuiConfig.getInstance().getErrorTitle(),
                         JOptionPane.YES_NO_OPTION, JOptionPane.PLAIN_MESSAGE, null, null, null);
@@ -186,4 +270,16 @@ final class ServiceHandler {
     byte[] retrievePhoto(final String photoName) throws ServiceException {
         return service.retrievePhoto(photoName);
     }
+
+
+    /**
+     * Downloads the items of a tile.
+     *
+     * @param <T> the type of the items
+     */
+    @FunctionalInterface
+    private interface TileLoader<T> {
+
+        List<T> load(TileKey tile) throws ServiceException;
+    }
 }
\ No newline at end of file
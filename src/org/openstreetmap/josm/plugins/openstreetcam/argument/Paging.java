@@ -29,9 +29,6 @@ public class Paging {
     /** default paging used for the list/nearby-photos method */
     public static final Paging NEARBY_PHOTOS_DEAFULT = new Paging(1, Config.getInstance().getNearbyPhotosMaxItems());
 
-    /** default paging used for the tracks method */
-    public static final Paging TRACKS_DEFAULT = new Paging(1, Config.getInstance().getTracksMaxItems());
-
     private final int page;
     private final int itemsPerPage;
 
@@ -8,32 +8,42 @@
  */
 package org.openstreetmap.josm.plugins.openstreetcam.cache;
 
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
 import java.io.File;
-import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Set;
-import org.apache.commons.jcs.access.CacheAccess;
-import org.apache.commons.jcs.engine.CompositeCacheAttributes;
-import org.apache.commons.jcs.engine.behavior.ICompositeCacheAttributes.DiskUsagePattern;
-import org.apache.commons.jcs.engine.control.CompositeCacheManager;
+import java.util.concurrent.ConcurrentHashMap;
 import org.openstreetmap.josm.Main;
-import org.openstreetmap.josm.data.cache.JCSCacheManager;
 import org.openstreetmap.josm.plugins.openstreetcam.argument.CacheSettings;
+import org.openstreetmap.josm.plugins.openstreetcam.argument.PhotoType;
+import org.openstreetmap.josm.plugins.openstreetcam.util.cnf.CacheConfig;
 import org.openstreetmap.josm.plugins.openstreetcam.util.cnf.GuiConfig;
 import org.openstreetmap.josm.plugins.openstreetcam.util.pref.PreferenceManager;
 
 
 /**
- * Handles cache related operations.
+ * Handles cache related operations. The photos are kept in memory by a size limited W-TinyLFU cache, every photo type
+ * having its own memory budget, and are stored on disk by a {@code PhotoDiskCache} which is kept across restarts. The
+ * keys of the photos kept in memory are indexed by sequence, in this way the photos of a sequence are removed without
+ * scanning the whole cache. A second, smaller memory tier keeps the decoded images, so a photo displayed again is not
+ * decoded one more time.
  *
  * @author beataj
  * @version $Revision$
  */
 public final class CacheManager {
 
-    private static final String CACHE_NAME = "openstreetcam";
     private static final String CACHE_LOCATION = "/cache/";
-    private static final String MEMORY_MANAGER = "org.apache.commons.jcs.engine.memory.fifo.FIFOMemoryCache";
-    private final CacheAccess<Key, CacheEntry> cache;
+    private static final String PHOTO_CACHE_LOCATION = "photos";
+    /* files of the JCS cache used by the previous versions of the plugin */
+    private static final String[] LEGACY_FILES = { "openstreetcam.data", "openstreetcam.key" };
+    private static final int KILOBYTE = 1024;
+    private final PhotoDiskCache diskCache;
+    private final Map<PhotoType, TinyLfuCache<Key, CacheEntry>> memoryCaches = new EnumMap<>(PhotoType.class);
+    private final TinyLfuCache<Key, DecodedImage> decodedCache;
+    private final Map<Long, Set<Key>> sequenceKeys = new ConcurrentHashMap<>();
 
     private static final CacheManager INSTANCE = new CacheManager();
 
@@ -42,17 +52,47 @@ public final class CacheManager {
         final String pluginLocation =
                 new File(Main.pref.getPluginsDirectory(), GuiConfig.getInstance().getPluginShortName()).getPath();
         final CacheSettings settings = PreferenceManager.getInstance().loadPreferenceSettings().getCacheSettings();
-        try {
-            this.cache = JCSCacheManager.getCache(CACHE_NAME, settings.getMemoryCount(), settings.getDiskCount(),
-                    pluginLocation + CACHE_LOCATION);
-            final CompositeCacheAttributes attr = (CompositeCacheAttributes) this.cache.getCacheAttributes();
-            attr.setDiskUsagePattern(DiskUsagePattern.SWAP);
-            attr.setMemoryCacheName(MEMORY_MANAGER);
-            this.cache.setCacheAttributes(attr);
-            this.cache.clear();
-        } catch (final IOException e) {
-            throw new ExceptionInInitializerError(e);
+        final File cacheLocation = new File(pluginLocation + CACHE_LOCATION);
+        for (final String legacyFile : LEGACY_FILES) {
+            final File file = new File(cacheLocation, legacyFile);
+            if (file.isFile() && !file.delete()) {
+                Main.warn("Could not delete cache file:" + file.getPath());
+            }
+        }
+        diskCache = new PhotoDiskCache(new File(cacheLocation, PHOTO_CACHE_LOCATION), settings.getDiskCount(),
+                (long) CacheConfig.getInstance().getDiskMaxSize() * KILOBYTE * KILOBYTE);
+        diskCache.open();
+        for (final PhotoType type : PhotoType.values()) {
+            final long maxSize = (long) settings.getMemoryCount() * photoSize(type) * KILOBYTE;
+            memoryCaches.put(type,
+                    new TinyLfuCache<>(maxSize, settings.getMemoryCount(), entry -> entry.getContent().length,
+                            this::unregister));
+        }
+        decodedCache = new TinyLfuCache<>((long) CacheConfig.getInstance().getDecodedSize() * KILOBYTE * KILOBYTE,
+                settings.getMemoryCount(), decodedImage -> imageSize(decodedImage.getImage()), this::unregister);
+    }
+
+    private static int imageSize(final BufferedImage image) {
+        final DataBuffer buffer = image.getRaster().getDataBuffer();
+        final long size = (long) buffer.getSize() * buffer.getNumBanks()
+                * DataBuffer.getDataTypeSize(buffer.getDataType()) / Byte.SIZE;
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    private static int photoSize(final PhotoType type) {
+        final int size;
+        switch (type) {
+            case THUMBNAIL:
+                size = CacheConfig.getInstance().getThumbnailSize();
+                break;
+            case LARGE_THUMBNAIL:
+                size = CacheConfig.getInstance().getLargeThumbnailSize();
+                break;
+            default:
+                size = CacheConfig.getInstance().getHighQualitySize();
+                break;
         }
+        return size;
     }
 
     /**
@@ -69,11 +109,17 @@ public final class CacheManager {
      *
      * @param sequenceId the identifier of the sequence to which the photo belongs
      * @param imageName the name of the image
+     * @param type the {@code PhotoType} of the image, selects the memory budget used for the image
      * @param image the image in byte format
      * @param warning a flag indicating if the image loading was successful or not
      */
-    public void putPhoto(final Long sequenceId, final String imageName, final byte[] image, final boolean warning) {
-        cache.put(new Key(sequenceId, imageName), new CacheEntry(image, warning));
+    public void putPhoto(final Long sequenceId, final String imageName, final PhotoType type, final byte[] image,
+            final boolean warning) {
+        final Key key = new Key(sequenceId, imageName);
+        final CacheEntry entry = new CacheEntry(image, warning);
+        register(key);
+        memoryCaches.get(type).put(key, entry);
+        diskCache.put(key, entry);
     }
 
     /**
@@ -81,22 +127,121 @@ public final class CacheManager {
      *
      * @param sequenceId the identifier of the sequence to which the photo belongs
      * @param imageName the name of the image
+     * @param type the {@code PhotoType} of the image
      * @return a {@code CacheEntry} object
      */
-    public CacheEntry getPhoto(final Long sequenceId, final String imageName) {
-        return cache.get(new Key(sequenceId, imageName));
+    public CacheEntry getPhoto(final Long sequenceId, final String imageName, final PhotoType type) {
+        final Key key = new Key(sequenceId, imageName);
+        final TinyLfuCache<Key, CacheEntry> memoryCache = memoryCaches.get(type);
+        CacheEntry entry = memoryCache.get(key);
+        if (entry == null) {
+            entry = diskCache.get(key);
+            if (entry != null) {
+                register(key);
+                memoryCache.put(key, entry);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Checks if the image corresponding to the given name is cached, either in memory or on disk.
+     *
+     * @param sequenceId the identifier of the sequence to which the photo belongs
+     * @param imageName the name of the image
+     * @param type the {@code PhotoType} of the image
+     * @return true if the image is cached; false otherwise
+     */
+    public boolean containsPhoto(final Long sequenceId, final String imageName, final PhotoType type) {
+        final Key key = new Key(sequenceId, imageName);
+        return memoryCaches.get(type).containsKey(key) || diskCache.contains(key);
+    }
+
+    /**
+     * Adds a decoded image to the cache, replacing the previously cached one. The image is shared by all the callers,
+     * it should not be modified.
+     *
+     * @param sequenceId the identifier of the sequence to which the photo belongs
+     * @param imageName the name of the image
+     * @param type the {@code PhotoType} of the image
+     * @param image the decoded image, possibly subsampled
+     */
+    public void putDecodedPhoto(final Long sequenceId, final String imageName, final PhotoType type,
+            final DecodedImage image) {
+        final Key key = new DecodedKey(sequenceId, imageName, type);
+        register(key);
+        decodedCache.put(key, image);
+    }
+
+    /**
+     * Returns the decoded image corresponding to the given name. The method returns null if the image is not cached.
+     *
+     * @param sequenceId the identifier of the sequence to which the photo belongs
+     * @param imageName the name of the image
+     * @param type the {@code PhotoType} of the image
+     * @return a {@code DecodedImage} object
+     */
+    public DecodedImage getDecodedPhoto(final Long sequenceId, final String imageName, final PhotoType type) {
+        return decodedCache.get(new DecodedKey(sequenceId, imageName, type));
+    }
+
+    /**
+     * Returns the hit, miss and eviction counters of the decoded image cache.
+     *
+     * @return a {@code CacheStatistics} object
+     */
+    public CacheStatistics getDecodedStatistics() {
+        return decodedCache.statistics();
+    }
+
+    /**
+     * Returns the hit, miss and eviction counters of the in-memory cache of the given photo type.
+     *
+     * @param type a {@code PhotoType}
+     * @return a {@code CacheStatistics} object
+     */
+    public CacheStatistics getStatistics(final PhotoType type) {
+        return memoryCaches.get(type).statistics();
+    }
+
+    /* adds the key to the index of its sequence, before the key is added to a memory cache */
+    private void register(final Key key) {
+        if (key.getSequenceId() != null) {
+            sequenceKeys.compute(key.getSequenceId(), (id, keys) -> {
+                final Set<Key> result = keys != null ? keys : ConcurrentHashMap.newKeySet();
+                result.add(key);
+                return result;
+            });
+        }
+    }
+
+    /* removes the key evicted from a memory cache from the index of its sequence */
+    private void unregister(final Key key) {
+        if (key.getSequenceId() != null) {
+            sequenceKeys.computeIfPresent(key.getSequenceId(), (id, keys) -> {
+                keys.remove(key);
+                return keys.isEmpty() ? null : keys;
+            });
+        }
     }
 
     /**
-     * Removes all the images associated with the given sequence identifier.
+     * Removes all the images associated with the given sequence identifier from memory. The images stored on disk are
+     * kept, they are removed by the disk cache cleaner when the disk cache is full.
      *
      * @param sequenceId the identifier of the sequence to which the photo belongs
      */
     public void removePhotos(final Long sequenceId) {
-        final Set<Object> keySet = CompositeCacheManager.getInstance().getCache(CACHE_NAME).getKeySet();
-        for (final Object key : keySet) {
-            if (((Key) key).getSequenceId().equals(sequenceId)) {
-                cache.remove((Key) key);
+        final Set<Key> keys = sequenceId != null ? sequenceKeys.remove(sequenceId) : null;
+        if (keys != null) {
+            for (final Key key : keys) {
+                if (key instanceof DecodedKey) {
+                    decodedCache.remove(key);
+                } else {
+                    for (final TinyLfuCache<Key, CacheEntry> memoryCache : memoryCaches.values()) {
+                        memoryCache.remove(key);
+                    }
+                }
             }
         }
     }
@@ -0,0 +1,81 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.cache;
+
+
+/**
+ * Snapshot of the counters of an in-memory cache.
+ *
+ * @author beataj
+ * @version $Revision$
+ */
+public final class CacheStatistics {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long size;
+    private final long maxSize;
+
+
+    /**
+     * Builds a new object with the given arguments.
+     *
+     * @param hitCount the number of lookups that found the entry
+     * @param missCount the number of lookups that did not find the entry
+     * @param evictionCount the number of entries evicted because the cache was full
+     * @param size the current size of the cache, in bytes
+     * @param maxSize the maximum size of the cache, in bytes
+     */
+    CacheStatistics(final long hitCount, final long missCount, final long evictionCount, final long size,
+            final long maxSize) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.size = size;
+        this.maxSize = maxSize;
+    }
+
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the ratio of the lookups that found the entry.
+     *
+     * @return a value between 0 and 1, or 0 if there was no lookup
+     */
+    public double getHitRate() {
+        final long requestCount = hitCount + missCount;
+        return requestCount == 0 ? 0 : (double) hitCount / requestCount;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatistics [hitCount=" + hitCount + ", missCount=" + missCount + ", evictionCount="
+                + evictionCount + ", size=" + size + ", maxSize=" + maxSize + "]";
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.cache;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+
+/**
+ * A decoded image, which might contain only a region of the photo and might be subsampled. The region is given in the
+ * coordinates of the full resolution photo.
+ *
+ * @author beataj
+ * @version $Revision$
+ */
+public final class DecodedImage {
+
+    private final BufferedImage image;
+    private final int width;
+    private final int height;
+    private final Rectangle region;
+    private final int subsampling;
+
+
+    /**
+     * Builds a new object with the given arguments.
+     *
+     * @param image the decoded pixels
+     * @param width the width of the full resolution photo
+     * @param height the height of the full resolution photo
+     * @param region the region of the full resolution photo contained by the image
+     * @param subsampling the subsampling used when decoding, 1 if every pixel was decoded
+     */
+    public DecodedImage(final BufferedImage image, final int width, final int height, final Rectangle region,
+            final int subsampling) {
+        this.image = image;
+        this.width = width;
+        this.height = height;
+        this.region = new Rectangle(region);
+        this.subsampling = subsampling;
+    }
+
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public Rectangle getRegion() {
+        return new Rectangle(region);
+    }
+
+    public int getSubsampling() {
+        return subsampling;
+    }
+
+    /**
+     * Checks if the image contains the whole photo.
+     *
+     * @return true if the region of the image is the whole photo; false otherwise
+     */
+    public boolean isFullRegion() {
+        return region.x == 0 && region.y == 0 && region.width == width && region.height == height;
+    }
+}
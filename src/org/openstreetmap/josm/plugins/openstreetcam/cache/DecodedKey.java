@@ -0,0 +1,60 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.cache;
+
+import org.openstreetmap.josm.plugins.openstreetcam.argument.PhotoType;
+import com.telenav.josm.common.entity.EntityUtil;
+
+
+/**
+ * Identifies a decoded image in the cache. A decoded image is never equal to the key of the encoded image having the
+ * same name.
+ *
+ * @author beataj
+ * @version $Revision$
+ */
+class DecodedKey extends Key {
+
+    private static final long serialVersionUID = 6328795236426741521L;
+    private final PhotoType photoType;
+
+
+    DecodedKey(final Long sequenceId, final String imageName, final PhotoType photoType) {
+        super(sequenceId, imageName);
+        this.photoType = photoType;
+    }
+
+    PhotoType getPhotoType() {
+        return photoType;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = super.hashCode();
+        result = prime * result + EntityUtil.hashCode(photoType);
+        return result;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        boolean result = false;
+        if (this == obj) {
+            result = true;
+        } else if (super.equals(obj)) {
+            result = EntityUtil.bothNullOrEqual(photoType, ((DecodedKey) obj).getPhotoType());
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return super.toString() + " " + photoType;
+    }
+}
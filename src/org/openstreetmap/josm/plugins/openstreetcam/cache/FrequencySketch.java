@@ -0,0 +1,102 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.cache;
+
+
+/**
+ * Count-min sketch estimating how often a key was accessed recently. The counters saturate at 15, and all of them are
+ * halved after a number of additions proportional to the sketch width; in this way old accesses are forgotten.
+ *
+ * @author beataj
+ * @version $Revision$
+ */
+final class FrequencySketch {
+
+    private static final int[] SEEDS = { 0x97CB3127, 0xB492B66F, 0x9AE16A3B, 0x2F4E5FA9 };
+    private static final int MAX_COUNT = 15;
+    private static final int MIN_WIDTH = 16;
+    private static final int MAX_WIDTH = 1 << 20;
+    private static final int SAMPLE_FACTOR = 10;
+
+    private final byte[][] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+
+    /**
+     * Builds a new sketch.
+     *
+     * @param expectedSize the expected number of distinct keys held by the cache
+     */
+    FrequencySketch(final int expectedSize) {
+        final int size = Math.min(MAX_WIDTH, Math.max(MIN_WIDTH, expectedSize));
+        final int width = Integer.highestOneBit(size - 1) << 1;
+        table = new byte[SEEDS.length][width];
+        mask = width - 1;
+        sampleSize = SAMPLE_FACTOR * width;
+    }
+
+
+    /**
+     * Records an access of the given key.
+     *
+     * @param key a key
+     */
+    void increment(final Object key) {
+        final int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            final int index = index(hash, i);
+            if (table[i][index] < MAX_COUNT) {
+                table[i][index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Returns the estimated number of recent accesses of the given key.
+     *
+     * @param key a key
+     * @return a value between 0 and 15
+     */
+    int frequency(final Object key) {
+        final int hash = spread(key.hashCode());
+        int result = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            result = Math.min(result, table[i][index(hash, i)]);
+        }
+        return result;
+    }
+
+    private void reset() {
+        for (final byte[] row : table) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>= 1;
+            }
+        }
+        additions /= 2;
+    }
+
+    private int index(final int hash, final int row) {
+        int value = hash * SEEDS[row];
+        value ^= value >>> 16;
+        return value & mask;
+    }
+
+    private static int spread(final int hash) {
+        int value = hash * 0x45D9F3B;
+        value ^= value >>> 16;
+        return value;
+    }
+}
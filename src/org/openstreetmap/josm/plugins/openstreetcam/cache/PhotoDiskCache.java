@@ -0,0 +1,415 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import org.openstreetmap.josm.Main;
+
+
+/**
+ * Persistent store of the downloaded photos, kept across JOSM restarts. Every sequence has its own directory, and
+ * every photo is stored in a file having a header with the format version, the photo name, the content length and the
+ * CRC32 checksum of the content; a file which does not pass these checks (for instance a partially written one) is
+ * deleted when it is read. The files are written to a temporary file of a separate directory first and then moved;
+ * the temporary files left by an interrupted session are removed when the cache is opened.
+ * <p>
+ * The directory holds a version file describing the layout of the store; if the layout changes the old files are
+ * removed. The number and the total size of the stored photos are limited: a background cleaner removes the least
+ * recently used photos if one of the limits is exceeded. The cleaner runs on its own low priority thread, in this way
+ * it can not be dropped by a full task queue; it scans the files without blocking the store operations.
+ *
+ * @author beataj
+ * @version $Revision$
+ */
+final class PhotoDiskCache {
+
+    private static final String VERSION_FILE = "version";
+    private static final String FILE_EXTENSION = ".img";
+    private static final String TMP_DIRECTORY = "tmp";
+    private static final String TMP_PREFIX = "img";
+    private static final String TMP_EXTENSION = ".tmp";
+    private static final String CLEANER_THREAD = "openstreetcam-disk-cleaner";
+    private static final int MAGIC = 0x4F534349;
+    private static final int VERSION = 1;
+    /* the cleaner removes photos until the cache is below this ratio of its limits */
+    private static final double CLEAN_RATIO = 0.9;
+
+    private final File directory;
+    private final File tmpDirectory;
+    private final int maxCount;
+    private final long maxSize;
+    private final AtomicBoolean cleaning = new AtomicBoolean();
+
+    /* guards the moving and the removal of the photo files, the sequence directories and the totals */
+    private final Object lock = new Object();
+    private int count;
+    private long size;
+
+    /* the new length of the photo files stored or removed while the cleaner scans the directory, otherwise null */
+    private Map<File, Long> changedFiles;
+
+
+    /**
+     * Builds a new disk cache.
+     *
+     * @param directory the directory of the cache
+     * @param maxCount the maximum number of stored photos
+     * @param maxSize the maximum total size of the stored photos, in bytes
+     */
+    PhotoDiskCache(final File directory, final int maxCount, final long maxSize) {
+        this.directory = directory;
+        this.tmpDirectory = new File(directory, TMP_DIRECTORY);
+        this.maxCount = maxCount;
+        this.maxSize = maxSize;
+    }
+
+
+    /**
+     * Opens the cache: checks the layout version and removes the leftover temporary files, then computes the current
+     * size of the cache and removes the photos exceeding the limits in the background. The cache can be used before
+     * the background operation completes.
+     */
+    void open() {
+        checkVersion();
+        final File[] tmpFiles = tmpDirectory.listFiles();
+        if (tmpFiles != null) {
+            for (final File tmpFile : tmpFiles) {
+                delete(tmpFile);
+            }
+        }
+        startCleaner();
+    }
+
+    /**
+     * Returns the photo having the given key, or null if the photo is not stored or its file is invalid.
+     *
+     * @param key identifies the photo
+     * @return a {@code CacheEntry} object
+     */
+    CacheEntry get(final Key key) {
+        final File file = file(key);
+        CacheEntry entry = null;
+        if (file.isFile()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                entry = read(in, key, file.length());
+            } catch (final IOException e) {
+                Main.warn(e, "Could not read cached photo:" + key);
+            }
+            if (entry == null) {
+                remove(file);
+            } else if (!file.setLastModified(System.currentTimeMillis())) {
+                Main.warn("Could not update cached photo:" + key);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Checks if the photo having the given key is stored. The content of the file is not checked.
+     *
+     * @param key identifies the photo
+     * @return true if the photo is stored; false otherwise
+     */
+    boolean contains(final Key key) {
+        return file(key).isFile();
+    }
+
+    /**
+     * Stores the given photo, replacing the previously stored one. The cleaner is started in the background if the
+     * cache exceeds its limits.
+     *
+     * @param key identifies the photo
+     * @param entry the photo content
+     */
+    void put(final Key key, final CacheEntry entry) {
+        final File file = file(key);
+        final File sequenceDirectory = file.getParentFile();
+        File tmpFile = null;
+        try {
+            if (tmpDirectory.isDirectory() || tmpDirectory.mkdirs()) {
+                tmpFile = File.createTempFile(TMP_PREFIX, TMP_EXTENSION, tmpDirectory);
+                try (DataOutputStream out =
+                        new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                    write(out, key, entry);
+                }
+                synchronized (lock) {
+                    // the cleaner removes the empty sequence directories while holding the lock
+                    if (sequenceDirectory.isDirectory() || sequenceDirectory.mkdirs()) {
+                        final long previousLength = file.length();
+                        move(tmpFile, file);
+                        tmpFile = null;
+                        updateTotals(file, previousLength, file.length());
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            Main.warn(e, "Could not cache photo:" + key);
+        } finally {
+            if (tmpFile != null) {
+                delete(tmpFile);
+            }
+        }
+        if (isExceeded()) {
+            startCleaner();
+        }
+    }
+
+    private boolean isExceeded() {
+        synchronized (lock) {
+            return count > maxCount || size > maxSize;
+        }
+    }
+
+    private void startCleaner() {
+        if (cleaning.compareAndSet(false, true)) {
+            final Thread cleaner = new Thread(() -> {
+                try {
+                    // the photos stored during a run could not be removed, and they did not start another run
+                    boolean again = true;
+                    while (again) {
+                        again = clean() && isExceeded();
+                    }
+                } finally {
+                    cleaning.set(false);
+                }
+            }, CLEANER_THREAD);
+            cleaner.setDaemon(true);
+            cleaner.setPriority(Thread.MIN_PRIORITY);
+            cleaner.start();
+        }
+    }
+
+    /* removes an invalid photo file */
+    private void remove(final File file) {
+        synchronized (lock) {
+            final long length = file.length();
+            if (delete(file)) {
+                updateTotals(file, length, 0);
+            }
+        }
+    }
+
+    /* updates the totals after a photo file was stored or removed; called while holding the lock */
+    private void updateTotals(final File file, final long previousLength, final long length) {
+        if (previousLength == 0 && length > 0) {
+            count++;
+        } else if (previousLength > 0 && length == 0) {
+            count--;
+        }
+        size += length - previousLength;
+        if (changedFiles != null) {
+            changedFiles.put(file, length);
+        }
+    }
+
+    private File file(final Key key) {
+        final StringBuilder name = new StringBuilder();
+        for (final char c : String.valueOf(key.getImageName()).toCharArray()) {
+            name.append(Character.isLetterOrDigit(c) || c == '.' || c == '-' ? c : '_');
+        }
+        return new File(new File(directory, String.valueOf(key.getSequenceId())), name.append(FILE_EXTENSION)
+                .toString());
+    }
+
+    /* removes the stored photos if they were written with another layout version */
+    private void checkVersion() {
+        final File versionFile = new File(directory, VERSION_FILE);
+        int version = 0;
+        if (versionFile.isFile()) {
+            try (DataInputStream in = new DataInputStream(new FileInputStream(versionFile))) {
+                version = in.readInt();
+            } catch (final IOException e) {
+                Main.warn(e, "Could not read cache version.");
+            }
+        }
+        if (version != VERSION) {
+            final File[] files = directory.listFiles();
+            if (files != null) {
+                for (final File file : files) {
+                    deleteRecursively(file);
+                }
+            }
+            if (directory.isDirectory() || directory.mkdirs()) {
+                try (DataOutputStream out = new DataOutputStream(new FileOutputStream(versionFile))) {
+                    out.writeInt(VERSION);
+                } catch (final IOException e) {
+                    Main.warn(e, "Could not write cache version.");
+                }
+            }
+        }
+    }
+
+    /*
+     * removes the least recently used photos if the cache exceeds its limits, and recomputes the totals; the files are
+     * scanned without holding the lock, the photos stored or removed meanwhile are taken into account at the end;
+     * returns true if there were such photos
+     */
+    private boolean clean() {
+        synchronized (lock) {
+            changedFiles = new HashMap<>();
+        }
+        final Map<File, Long> lengths = scan();
+        final long totalSize = lengths.values().stream().mapToLong(Long::longValue).sum();
+        if (lengths.size() > maxCount || totalSize > maxSize) {
+            removeLeastRecentlyUsed(lengths, totalSize);
+        }
+        final boolean changed;
+        synchronized (lock) {
+            for (final Map.Entry<File, Long> changedFile : changedFiles.entrySet()) {
+                if (changedFile.getValue() > 0) {
+                    lengths.put(changedFile.getKey(), changedFile.getValue());
+                } else {
+                    lengths.remove(changedFile.getKey());
+                }
+            }
+            changed = !changedFiles.isEmpty();
+            changedFiles = null;
+            count = lengths.size();
+            size = lengths.values().stream().mapToLong(Long::longValue).sum();
+        }
+        return changed;
+    }
+
+    /* returns the length of every stored photo file */
+    private Map<File, Long> scan() {
+        final Map<File, Long> lengths = new HashMap<>();
+        final File[] sequenceDirectories = directory.listFiles(this::isSequenceDirectory);
+        if (sequenceDirectories != null) {
+            for (final File sequenceDirectory : sequenceDirectories) {
+                final File[] sequenceFiles = sequenceDirectory.listFiles();
+                if (sequenceFiles != null) {
+                    for (final File file : sequenceFiles) {
+                        final long length = file.length();
+                        if (file.getName().endsWith(FILE_EXTENSION) && length > 0) {
+                            lengths.put(file, length);
+                        }
+                    }
+                }
+            }
+        }
+        return lengths;
+    }
+
+    /* removes the least recently used photos until the cache is below the clean ratio of its limits */
+    private void removeLeastRecentlyUsed(final Map<File, Long> lengths, final long totalSize) {
+        final List<File> files = new ArrayList<>(lengths.keySet());
+        final long[] lastModified = new long[files.size()];
+        final Integer[] order = new Integer[files.size()];
+        for (int i = 0; i < files.size(); i++) {
+            lastModified[i] = files.get(i).lastModified();
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> lastModified[i]));
+        final long targetSize = (long) (maxSize * CLEAN_RATIO);
+        final int targetCount = (int) (maxCount * CLEAN_RATIO);
+        int remainingCount = files.size();
+        long remainingSize = totalSize;
+        for (int i = 0; i < order.length && (remainingCount > targetCount || remainingSize > targetSize); i++) {
+            final File file = files.get(order[i]);
+            synchronized (lock) {
+                // a photo stored again during the scan was used recently
+                if (!changedFiles.containsKey(file) && delete(file)) {
+                    remainingCount--;
+                    remainingSize -= lengths.remove(file);
+                }
+            }
+        }
+        final File[] sequenceDirectories = directory.listFiles(this::isSequenceDirectory);
+        if (sequenceDirectories != null) {
+            for (final File sequenceDirectory : sequenceDirectories) {
+                synchronized (lock) {
+                    // removes the directory only if it is empty
+                    sequenceDirectory.delete();
+                }
+            }
+        }
+    }
+
+    private boolean isSequenceDirectory(final File file) {
+        return file.isDirectory() && !file.equals(tmpDirectory);
+    }
+
+    private static CacheEntry read(final DataInputStream in, final Key key, final long fileLength)
+            throws IOException {
+        CacheEntry entry = null;
+        if (in.readInt() == MAGIC && in.readInt() == VERSION && in.readUTF().equals(key.getImageName())) {
+            final boolean warning = in.readBoolean();
+            final int length = in.readInt();
+            final long checksum = in.readLong();
+            if (length >= 0 && length <= fileLength) {
+                final byte[] content = new byte[length];
+                in.readFully(content);
+                final CRC32 crc = new CRC32();
+                crc.update(content);
+                if (crc.getValue() == checksum && in.read() == -1) {
+                    entry = new CacheEntry(content, warning);
+                }
+            }
+        }
+        return entry;
+    }
+
+    private static void write(final DataOutputStream out, final Key key, final CacheEntry entry) throws IOException {
+        final byte[] content = entry.getContent();
+        final CRC32 crc = new CRC32();
+        crc.update(content);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeUTF(key.getImageName());
+        out.writeBoolean(entry.isWarning());
+        out.writeInt(content.length);
+        out.writeLong(crc.getValue());
+        out.write(content);
+    }
+
+    private static void move(final File source, final File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (final AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static void deleteRecursively(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        delete(file);
+    }
+
+    private static boolean delete(final File file) {
+        final boolean deleted = file.delete();
+        if (!deleted && file.exists()) {
+            Main.warn("Could not delete cache file:" + file.getPath());
+        }
+        return deleted;
+    }
+}
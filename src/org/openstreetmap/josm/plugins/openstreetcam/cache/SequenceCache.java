@@ -0,0 +1,346 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.plugins.openstreetcam.entity.Photo;
+import org.openstreetmap.josm.plugins.openstreetcam.entity.PhotoBuilder;
+import org.openstreetmap.josm.plugins.openstreetcam.entity.Sequence;
+import org.openstreetmap.josm.plugins.openstreetcam.util.cnf.CacheConfig;
+import org.openstreetmap.josm.plugins.openstreetcam.util.cnf.GuiConfig;
+
+
+/**
+ * Persistent cache of the downloaded sequences. Every sequence is stored in a compact binary file under the plugin's
+ * cache directory, together with the validators (ETag, Last-Modified) returned by the server; the files are kept
+ * across JOSM restarts. A file is written to a temporary file first and then renamed, in this way a partially written
+ * file is never read. The least recently stored sequences are removed if the number of files exceeds the configured
+ * maximum.
+ *
+ * @author beataj
+ * @version $Revision$
+ */
+public final class SequenceCache {
+
+    private static final String CACHE_LOCATION = "/cache/sequences/";
+    private static final String FILE_EXTENSION = ".seq";
+    private static final String TMP_PREFIX = "seq";
+    private static final String TMP_EXTENSION = ".tmp";
+
+    /** identifies the file format, the version is increased if the format changes */
+    private static final int MAGIC = 0x4F534353;
+    private static final int VERSION = 1;
+
+    /* flags marking the present photo attributes */
+    private static final int ID = 1;
+    private static final int SEQUENCE_ID = 1 << 1;
+    private static final int SEQUENCE_INDEX = 1 << 2;
+    private static final int LOCATION = 1 << 3;
+    private static final int NAME = 1 << 4;
+    private static final int LARGE_THUMBNAIL_NAME = 1 << 5;
+    private static final int THUMBNAIL_NAME = 1 << 6;
+    private static final int TIMESTAMP = 1 << 7;
+    private static final int HEADING = 1 << 8;
+    private static final int USERNAME = 1 << 9;
+
+    private static final SequenceCache INSTANCE = new SequenceCache();
+
+    private final File directory;
+    private final int maxCount;
+    private final long maxAge;
+
+
+    private SequenceCache() {
+        directory = new File(Main.pref.getPluginsDirectory(),
+                GuiConfig.getInstance().getPluginShortName() + CACHE_LOCATION);
+        maxCount = CacheConfig.getInstance().getSequenceMaxCount();
+        maxAge = TimeUnit.SECONDS.toMillis(CacheConfig.getInstance().getSequenceMaxAge());
+    }
+
+
+    /**
+     * Returns the unique instance of the sequence cache.
+     *
+     * @return a {@code SequenceCache} object
+     */
+    public static SequenceCache getInstance() {
+        return INSTANCE;
+    }
+
+
+    /**
+     * Returns the cached sequence having the given identifier. The method returns null if the sequence is not cached
+     * or its file can not be read.
+     *
+     * @param id a sequence identifier
+     * @return an {@code Entry} containing the sequence and its validators
+     */
+    public Entry get(final Long id) {
+        final File file = file(id);
+        Entry entry = null;
+        if (file.isFile()) {
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))))) {
+                entry = read(in, System.currentTimeMillis() - file.lastModified() <= maxAge);
+            } catch (final IOException | RuntimeException e) {
+                Main.warn(e, "Could not read cached sequence:" + id);
+                delete(file);
+            }
+        }
+        return entry;
+    }
+
+    /**
+     * Stores the given sequence. If the sequence is already cached, it is replaced.
+     *
+     * @param sequence a {@code Sequence} having photos
+     * @param entityTag the value of the ETag header returned with the sequence
+     * @param lastModified the value of the Last-Modified header returned with the sequence
+     */
+    public synchronized void put(final Sequence sequence, final String entityTag, final String lastModified) {
+        File tmpFile = null;
+        try {
+            if (directory.isDirectory() || directory.mkdirs()) {
+                tmpFile = File.createTempFile(TMP_PREFIX, TMP_EXTENSION, directory);
+                try (DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tmpFile))))) {
+                    write(out, sequence, entityTag, lastModified);
+                }
+                move(tmpFile, file(sequence.getId()));
+                tmpFile = null;
+                removeOldest();
+            }
+        } catch (final IOException e) {
+            Main.warn(e, "Could not cache sequence:" + sequence.getId());
+        } finally {
+            if (tmpFile != null) {
+                delete(tmpFile);
+            }
+        }
+    }
+
+    /**
+     * Marks the cached sequence as fresh. This method should be called if the server reported that the sequence was
+     * not modified.
+     *
+     * @param id a sequence identifier
+     */
+    public void touch(final Long id) {
+        final File file = file(id);
+        if (file.isFile() && !file.setLastModified(System.currentTimeMillis())) {
+            Main.warn("Could not update cached sequence:" + id);
+        }
+    }
+
+    private File file(final Long id) {
+        return new File(directory, id + FILE_EXTENSION);
+    }
+
+    private static void move(final File source, final File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (final AtomicMoveNotSupportedException e) {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void removeOldest() {
+        final File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_EXTENSION));
+        if (files != null && files.length > maxCount) {
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for (int i = 0; i < files.length - maxCount; i++) {
+                delete(files[i]);
+            }
+        }
+    }
+
+    private static void delete(final File file) {
+        if (!file.delete() && file.exists()) {
+            Main.warn("Could not delete cache file:" + file.getPath());
+        }
+    }
+
+    private static void write(final DataOutputStream out, final Sequence sequence, final String entityTag,
+            final String lastModified) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, entityTag);
+        writeString(out, lastModified);
+        out.writeLong(sequence.getId());
+        out.writeInt(sequence.getPhotos().size());
+        for (final Photo photo : sequence.getPhotos()) {
+            out.writeShort(flags(photo));
+            if (photo.getId() != null) {
+                out.writeLong(photo.getId());
+            }
+            if (photo.getSequenceId() != null) {
+                out.writeLong(photo.getSequenceId());
+            }
+            if (photo.getSequenceIndex() != null) {
+                out.writeInt(photo.getSequenceIndex());
+            }
+            if (photo.getLocation() != null) {
+                out.writeDouble(photo.getLocation().lat());
+                out.writeDouble(photo.getLocation().lon());
+            }
+            if (photo.getName() != null) {
+                out.writeUTF(photo.getName());
+            }
+            if (photo.getLargeThumbnailName() != null) {
+                out.writeUTF(photo.getLargeThumbnailName());
+            }
+            if (photo.getThumbnailName() != null) {
+                out.writeUTF(photo.getThumbnailName());
+            }
+            if (photo.getTimestamp() != null) {
+                out.writeLong(photo.getTimestamp());
+            }
+            if (photo.getHeading() != null) {
+                out.writeDouble(photo.getHeading());
+            }
+            if (photo.getUsername() != null) {
+                out.writeUTF(photo.getUsername());
+            }
+        }
+    }
+
+    private static int flags(final Photo photo) {
+        int flags = 0;
+        flags |= photo.getId() != null ? ID : 0;
+        flags |= photo.getSequenceId() != null ? SEQUENCE_ID : 0;
+        flags |= photo.getSequenceIndex() != null ? SEQUENCE_INDEX : 0;
+        flags |= photo.getLocation() != null ? LOCATION : 0;
+        flags |= photo.getName() != null ? NAME : 0;
+        flags |= photo.getLargeThumbnailName() != null ? LARGE_THUMBNAIL_NAME : 0;
+        flags |= photo.getThumbnailName() != null ? THUMBNAIL_NAME : 0;
+        flags |= photo.getTimestamp() != null ? TIMESTAMP : 0;
+        flags |= photo.getHeading() != null ? HEADING : 0;
+        flags |= photo.getUsername() != null ? USERNAME : 0;
+        return flags;
+    }
+
+    private static Entry read(final DataInputStream in, final boolean fresh) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Unsupported sequence file format");
+        }
+        final String entityTag = readString(in);
+        final String lastModified = readString(in);
+        final long id = in.readLong();
+        final int count = in.readInt();
+        final List<Photo> photos = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int flags = in.readUnsignedShort();
+            final PhotoBuilder builder = new PhotoBuilder();
+            if ((flags & ID) != 0) {
+                builder.id(in.readLong());
+            }
+            if ((flags & SEQUENCE_ID) != 0) {
+                builder.sequenceId(in.readLong());
+            }
+            if ((flags & SEQUENCE_INDEX) != 0) {
+                builder.sequenceIndex(in.readInt());
+            }
+            if ((flags & LOCATION) != 0) {
+                builder.location(in.readDouble(), in.readDouble());
+            }
+            if ((flags & NAME) != 0) {
+                builder.name(in.readUTF());
+            }
+            if ((flags & LARGE_THUMBNAIL_NAME) != 0) {
+                builder.largeThumbnailName(in.readUTF());
+            }
+            if ((flags & THUMBNAIL_NAME) != 0) {
+                builder.thumbnailName(in.readUTF());
+            }
+            if ((flags & TIMESTAMP) != 0) {
+                builder.timestamp(in.readLong());
+            }
+            if ((flags & HEADING) != 0) {
+                builder.heading(in.readDouble());
+            }
+            if ((flags & USERNAME) != 0) {
+                builder.username(in.readUTF());
+            }
+            photos.add(builder.build());
+        }
+        return new Entry(new Sequence(id, photos), entityTag, lastModified, fresh);
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(final DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+
+    /**
+     * A cached sequence together with its validators.
+     */
+    public static final class Entry {
+
+        private final Sequence sequence;
+        private final String entityTag;
+        private final String lastModified;
+        private final boolean fresh;
+
+        private Entry(final Sequence sequence, final String entityTag, final String lastModified,
+                final boolean fresh) {
+            this.sequence = sequence;
+            this.entityTag = entityTag;
+            this.lastModified = lastModified;
+            this.fresh = fresh;
+        }
+
+        public Sequence getSequence() {
+            return sequence;
+        }
+
+        public String getEntityTag() {
+            return entityTag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        /**
+         * Checks if the sequence was stored or revalidated recently; a fresh sequence can be used without asking the
+         * server.
+         *
+         * @return true if the sequence is fresh; false otherwise
+         */
+        public boolean isFresh() {
+            return fresh;
+        }
+    }
+}
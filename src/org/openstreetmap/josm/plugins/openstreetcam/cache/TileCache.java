@@ -0,0 +1,99 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.cache;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openstreetmap.josm.plugins.openstreetcam.util.cnf.CacheConfig;
+
+
+/**
+ * In-memory cache holding the downloaded items of the map tiles. The least recently used tile is evicted if the cache
+ * is full, and a tile expires after a configured time.
+ *
+ * @author beataj
+ * @version $Revision$
+ * @param <T> the type of the cached items
+ */
+public final class TileCache<T> {
+
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final long expiration;
+    private final Map<TileKey, Entry<T>> tiles;
+
+
+    /**
+     * Builds a new empty cache using the tile cache configuration.
+     */
+    public TileCache() {
+        final int maxCount = CacheConfig.getInstance().getTileMaxCount();
+        this.expiration = TimeUnit.SECONDS.toMillis(CacheConfig.getInstance().getTileExpiration());
+        this.tiles = new LinkedHashMap<TileKey, Entry<T>>(maxCount, LOAD_FACTOR, true) {
+
+            private static final long serialVersionUID = 2453962543123374717L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<TileKey, Entry<T>> eldest) {
+                return size() > maxCount;
+            }
+        };
+    }
+
+
+    /**
+     * Returns the items of the given tile. The method returns null if the tile is not cached or it expired.
+     *
+     * @param key a {@code TileKey} identifies the tile
+     * @return a list of items
+     */
+    public synchronized List<T> get(final TileKey key) {
+        final Entry<T> entry = tiles.get(key);
+        List<T> result = null;
+        if (entry != null) {
+            if (System.currentTimeMillis() - entry.time > expiration) {
+                tiles.remove(key);
+            } else {
+                result = entry.items;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds the items of the given tile to the cache.
+     *
+     * @param key a {@code TileKey} identifies the tile
+     * @param items the items located in the tile
+     */
+    public synchronized void put(final TileKey key, final List<T> items) {
+        tiles.put(key, new Entry<>(items, System.currentTimeMillis()));
+    }
+
+    /**
+     * Removes all the tiles from the cache.
+     */
+    public synchronized void clear() {
+        tiles.clear();
+    }
+
+
+    private static final class Entry<T> {
+
+        private final List<T> items;
+        private final long time;
+
+        private Entry(final List<T> items, final long time) {
+            this.items = items;
+            this.time = time;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.openstreetmap.josm.plugins.openstreetcam.argument.ListFilter;
+import com.telenav.josm.common.argument.BoundingBox;
+import com.telenav.josm.common.entity.EntityUtil;
+
+
+/**
+ * Identifies a slippy map tile together with the arguments used for downloading the tile's data.
+ *
+ * @author beataj
+ * @version $Revision$
+ */
+public final class TileKey {
+
+    private static final double MAX_LAT = 85.0511287798;
+    private static final double MAX_LON = 180.0;
+
+    private final int tileZoom;
+    private final int x;
+    private final int y;
+    private final int zoom;
+    private final ListFilter filter;
+    private final Long osmUserId;
+
+
+    private TileKey(final int tileZoom, final int x, final int y, final int zoom, final ListFilter filter,
+            final Long osmUserId) {
+        this.tileZoom = tileZoom;
+        this.x = x;
+        this.y = y;
+        this.zoom = zoom;
+        this.filter = filter;
+        this.osmUserId = osmUserId;
+    }
+
+
+    /**
+     * Returns the tiles from the given tile zoom level that cover the given area.
+     *
+     * @param area a {@code BoundingBox} the area to cover
+     * @param tileZoom the zoom level of the tile grid
+     * @param zoom the zoom level of the map, the data of a tile depends on it
+     * @param filter the {@code ListFilter} used for downloading the data
+     * @param osmUserId the user's OSM identifier used for downloading the data
+     * @return a list of {@code TileKey}s
+     */
+    public static List<TileKey> covering(final BoundingBox area, final int tileZoom, final int zoom,
+            final ListFilter filter, final Long osmUserId) {
+        final int minX = tileX(area.getWest(), tileZoom);
+        final int maxX = tileX(area.getEast(), tileZoom);
+        final int minY = tileY(area.getNorth(), tileZoom);
+        final int maxY = tileY(area.getSouth(), tileZoom);
+        final List<TileKey> result = new ArrayList<>();
+        for (int tileX = minX; tileX <= maxX; tileX++) {
+            for (int tileY = minY; tileY <= maxY; tileY++) {
+                result.add(new TileKey(tileZoom, tileX, tileY, zoom, filter, osmUserId));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the area covered by the tile.
+     *
+     * @return a {@code BoundingBox}
+     */
+    public BoundingBox getBoundingBox() {
+        return new BoundingBox(lat(y, tileZoom), lat(y + 1, tileZoom), lon(x + 1, tileZoom), lon(x, tileZoom));
+    }
+
+    public int getZoom() {
+        return zoom;
+    }
+
+    public ListFilter getFilter() {
+        return filter;
+    }
+
+    public Long getOsmUserId() {
+        return osmUserId;
+    }
+
+    private static int tileX(final double lon, final int tileZoom) {
+        final int count = 1 << tileZoom;
+        final double value = Math.max(-MAX_LON, Math.min(MAX_LON, lon));
+        return Math.min(count - 1, (int) Math.floor((value + MAX_LON) / (2 * MAX_LON) * count));
+    }
+
+    private static int tileY(final double lat, final int tileZoom) {
+        final int count = 1 << tileZoom;
+        final double latRad = Math.toRadians(Math.max(-MAX_LAT, Math.min(MAX_LAT, lat)));
+        final double value = (1 - Math.log(Math.tan(latRad) + 1 / Math.cos(latRad)) / Math.PI) / 2;
+        return Math.max(0, Math.min(count - 1, (int) Math.floor(value * count)));
+    }
+
+    private static double lon(final int tileX, final int tileZoom) {
+        return (double) tileX / (1 << tileZoom) * 2 * MAX_LON - MAX_LON;
+    }
+
+    private static double lat(final int tileY, final int tileZoom) {
+        return Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2.0 * tileY / (1 << tileZoom)))));
+    }
+
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + tileZoom;
+        result = prime * result + x;
+        result = prime * result + y;
+        result = prime * result + zoom;
+        result = prime * result + EntityUtil.hashCode(filter);
+        result = prime * result + EntityUtil.hashCode(osmUserId);
+        return result;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        boolean result = false;
+        if (this == obj) {
+            result = true;
+        } else if (obj != null && obj.getClass() == this.getClass()) {
+            final TileKey other = (TileKey) obj;
+            result = tileZoom == other.tileZoom && x == other.x && y == other.y && zoom == other.zoom;
+            result = result && EntityUtil.bothNullOrEqual(filter, other.getFilter());
+            result = result && EntityUtil.bothNullOrEqual(osmUserId, other.getOsmUserId());
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return tileZoom + "/" + x + "/" + y + " " + zoom;
+    }
+}
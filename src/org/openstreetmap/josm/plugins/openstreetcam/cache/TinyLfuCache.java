@@ -0,0 +1,273 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.cache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+
+/**
+ * In-memory cache limited by the total weight of its values, using the W-TinyLFU policy. New entries are added to a
+ * small LRU window; the entries leaving the window compete with the least recently used entry of the main area, and
+ * the one accessed less often is evicted. The access frequencies are estimated by a {@code FrequencySketch}. The main
+ * area is a segmented LRU: an entry accessed again is promoted from the probation to the protected segment, in this
+ * way a photo viewed several times is not evicted by a series of photos viewed only once.
+ *
+ * @author beataj
+ * @version $Revision$
+ * @param <K> the type of the keys
+ * @param <V> the type of the values
+ */
+final class TinyLfuCache<K, V> {
+
+    /* the window is larger than in a general purpose cache, since the photos are often viewed back and forth */
+    private static final double WINDOW_RATIO = 0.1;
+    private static final double PROTECTED_RATIO = 0.8;
+
+    private final ToIntFunction<V> weigher;
+    private final Consumer<K> evictionListener;
+    private final long maxWeight;
+    private final long windowMaxWeight;
+    private final long protectedMaxWeight;
+    private final FrequencySketch sketch;
+    private final Map<K, Node<K, V>> nodes = new HashMap<>();
+    private final Segment<K, V> window = new Segment<>();
+    private final Segment<K, V> probation = new Segment<>();
+    private final Segment<K, V> protect = new Segment<>();
+
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+
+    /**
+     * Builds a new empty cache.
+     *
+     * @param maxWeight the maximum total weight of the cached values
+     * @param expectedSize the expected number of entries, used for sizing the frequency sketch
+     * @param weigher computes the weight of a value
+     * @param evictionListener notified with the key of every entry evicted because the cache was full, or not cached
+     * because its value was too heavy; it is called while the cache is locked, so it should not access the cache
+     */
+    TinyLfuCache(final long maxWeight, final int expectedSize, final ToIntFunction<V> weigher,
+            final Consumer<K> evictionListener) {
+        this.weigher = weigher;
+        this.evictionListener = evictionListener;
+        this.maxWeight = maxWeight;
+        this.windowMaxWeight = (long) (maxWeight * WINDOW_RATIO);
+        this.protectedMaxWeight = (long) ((maxWeight - windowMaxWeight) * PROTECTED_RATIO);
+        this.sketch = new FrequencySketch(expectedSize);
+    }
+
+
+    /**
+     * Returns the value associated with the given key, or null if the key is not cached.
+     *
+     * @param key a key
+     * @return the cached value
+     */
+    synchronized V get(final K key) {
+        sketch.increment(key);
+        final Node<K, V> node = nodes.get(key);
+        V result = null;
+        if (node == null) {
+            missCount++;
+        } else {
+            hitCount++;
+            onAccess(node);
+            result = node.value;
+        }
+        return result;
+    }
+
+    /**
+     * Checks if the given key is cached. The method does not count as an access of the key.
+     *
+     * @param key a key
+     * @return true if the key is cached; false otherwise
+     */
+    synchronized boolean containsKey(final K key) {
+        return nodes.containsKey(key);
+    }
+
+    /**
+     * Adds the given entry to the cache, replacing the previous value of the key. A value heavier than the maximum
+     * weight is not cached, and the previous value of the key is removed.
+     *
+     * @param key a key
+     * @param value the value associated with the key
+     */
+    synchronized void put(final K key, final V value) {
+        final Node<K, V> previous = nodes.remove(key);
+        if (previous != null) {
+            previous.segment.unlink(previous);
+        }
+        sketch.increment(key);
+        final int weight = weigher.applyAsInt(value);
+        if (weight <= maxWeight) {
+            final Node<K, V> node = new Node<>(key, value, weight);
+            nodes.put(key, node);
+            window.addLast(node);
+            evict();
+        } else {
+            evictionListener.accept(key);
+        }
+    }
+
+    /**
+     * Removes the given key from the cache.
+     *
+     * @param key a key
+     */
+    synchronized void remove(final K key) {
+        final Node<K, V> node = nodes.remove(key);
+        if (node != null) {
+            node.segment.unlink(node);
+        }
+    }
+
+    /**
+     * Returns the current counters of the cache.
+     *
+     * @return a {@code CacheStatistics} object
+     */
+    synchronized CacheStatistics statistics() {
+        return new CacheStatistics(hitCount, missCount, evictionCount, weight(), maxWeight);
+    }
+
+    private long weight() {
+        return window.weight + probation.weight + protect.weight;
+    }
+
+    private void onAccess(final Node<K, V> node) {
+        if (node.segment == probation) {
+            probation.unlink(node);
+            protect.addLast(node);
+            while (protect.weight > protectedMaxWeight && protect.head != null) {
+                final Node<K, V> demoted = protect.head;
+                protect.unlink(demoted);
+                probation.addLast(demoted);
+            }
+        } else {
+            node.segment.moveToLast(node);
+        }
+    }
+
+    private void evict() {
+        // the entries leaving the window are admitted into the probation segment as candidates
+        int candidates = 0;
+        while (window.weight > windowMaxWeight && window.head != null) {
+            final Node<K, V> node = window.head;
+            window.unlink(node);
+            probation.addLast(node);
+            candidates++;
+        }
+        while (weight() > maxWeight) {
+            final Node<K, V> victim = victim();
+            final Node<K, V> candidate = candidates > 0 ? probation.tail : null;
+            final Node<K, V> evicted;
+            if (candidate == null || candidate == victim
+                    || sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                evicted = victim;
+            } else {
+                evicted = candidate;
+            }
+            evict(evicted);
+            if (evicted == candidate) {
+                candidates--;
+            }
+            candidates = Math.min(candidates, probation.size);
+        }
+    }
+
+    private Node<K, V> victim() {
+        Node<K, V> victim = probation.head;
+        if (victim == null) {
+            victim = protect.head != null ? protect.head : window.head;
+        }
+        return victim;
+    }
+
+    private void evict(final Node<K, V> node) {
+        node.segment.unlink(node);
+        nodes.remove(node.key);
+        evictionCount++;
+        evictionListener.accept(node.key);
+    }
+
+
+    private static final class Node<K, V> {
+
+        private final K key;
+        private final V value;
+        private final int weight;
+        private Segment<K, V> segment;
+        private Node<K, V> previous;
+        private Node<K, V> next;
+
+        private Node(final K key, final V value, final int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+
+    /**
+     * Doubly linked list of nodes ordered from the least to the most recently used one.
+     */
+    private static final class Segment<K, V> {
+
+        private Node<K, V> head;
+        private Node<K, V> tail;
+        private long weight;
+        private int size;
+
+        private void addLast(final Node<K, V> node) {
+            node.segment = this;
+            node.previous = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+            size++;
+        }
+
+        private void unlink(final Node<K, V> node) {
+            if (node.previous == null) {
+                head = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+            node.segment = null;
+            weight -= node.weight;
+            size--;
+        }
+
+        private void moveToLast(final Node<K, V> node) {
+            if (node != tail) {
+                unlink(node);
+                addLast(node);
+            }
+        }
+    }
+}
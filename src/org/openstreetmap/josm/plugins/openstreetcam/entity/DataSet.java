@@ -9,6 +9,7 @@
 package org.openstreetmap.josm.plugins.openstreetcam.entity;
 
 import java.util.List;
+import org.openstreetmap.josm.plugins.openstreetcam.index.PhotoIndex;
 
 
 /**
@@ -20,25 +21,61 @@ import java.util.List;
 public class DataSet {
 
     private final List<Segment> segments;
-    private final List<Photo> photos;
+    private final PhotoStore photoStore;
+    private final PhotoIndex photoIndex;
 
 
     /**
-     * Builds a new object with the given arguments.
+     * Builds a new object with the given arguments. The photos are copied to a column-wise {@code PhotoStore} and
+     * indexed by location, in order to speed up the location based searches; the given photo list is not kept.
      *
      * @param segments a list of {@code Segment}s.
      * @param photos a list of {@code Photo}s
      */
     public DataSet(final List<Segment> segments, final List<Photo> photos) {
         this.segments = segments;
-        this.photos = photos;
+        this.photoStore = photos != null ? new PhotoStore(photos) : null;
+        this.photoIndex = photoStore != null ? new PhotoIndex(photoStore) : null;
     }
 
     public List<Segment> getSegments() {
         return segments;
     }
 
+    /**
+     * Returns the photos of the data set. The returned list is a read-only view of the photo store, its elements are
+     * created on access.
+     *
+     * @return a list of {@code Photo}s, or null if the data set contains segments
+     */
     public List<Photo> getPhotos() {
-        return photos;
+        return photoStore != null ? photoStore.asList() : null;
+    }
+
+    public PhotoIndex getPhotoIndex() {
+        return photoIndex;
+    }
+
+    /**
+     * Returns the photo belonging to the given sequence and having the given sequence index. The method returns null
+     * if the data set does not contain such a photo.
+     *
+     * @param sequenceId a sequence identifier
+     * @param sequenceIndex the position of the photo in the sequence
+     * @return a {@code Photo}
+     */
+    public Photo sequencePhoto(final Long sequenceId, final int sequenceIndex) {
+        final int position = photoStore != null ? photoStore.indexOf(sequenceId, sequenceIndex) : -1;
+        return position >= 0 ? photoStore.get(position) : null;
+    }
+
+    /**
+     * Checks if the data set contains the given photo.
+     *
+     * @param photo a {@code Photo}
+     * @return true if the data set contains the photo; false otherwise
+     */
+    public boolean containsPhoto(final Photo photo) {
+        return photoStore != null && photo != null && photoStore.indexOf(photo) >= 0;
     }
 }
\ No newline at end of file
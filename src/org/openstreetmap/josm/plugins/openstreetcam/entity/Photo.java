@@ -36,7 +36,7 @@ public class Photo {
     private final String thumbnailName;
     private final Long timestamp;
     private final Double heading;
-    private String username;
+    private final String username;
 
 
     Photo(final PhotoBuilder builder) {
@@ -92,10 +92,6 @@ public class Photo {
         return username;
     }
 
-    public void setUsername(final String username) {
-        this.username = username;
-    }
-
     @Override
     public int hashCode() {
         final int prime = 31;
@@ -33,6 +33,24 @@ public class PhotoBuilder {
 
     public PhotoBuilder() {}
 
+    /**
+     * Builds a new builder initialized with the attributes of the given photo.
+     *
+     * @param photo a {@code Photo}
+     */
+    public PhotoBuilder(final Photo photo) {
+        this.id = photo.getId();
+        this.sequenceId = photo.getSequenceId();
+        this.sequenceIndex = photo.getSequenceIndex();
+        this.location = photo.getLocation();
+        this.name = photo.getName();
+        this.largeThumbnailName = photo.getLargeThumbnailName();
+        this.thumbnailName = photo.getThumbnailName();
+        this.timestamp = photo.getTimestamp();
+        this.heading = photo.getHeading();
+        this.username = photo.getUsername();
+    }
+
     public void id(final Long id) {
         this.id = id;
     }
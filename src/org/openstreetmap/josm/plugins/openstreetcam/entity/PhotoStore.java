@@ -0,0 +1,308 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.entity;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
+
+
+/**
+ * Read-only column-wise storage of a set of photos. Every photo attribute is stored in a primitive array, and the
+ * photo names are split in a directory and a file part; directories are stored once in a dictionary and equal file
+ * names share the same string. The photos are sorted by sequence identifier and sequence index.
+ * <p>
+ * Rendering and spatial queries read the columns directly, a {@code Photo} object is created only when a photo is
+ * requested through the {@code get} method. The returned photos are short lived copies, they are equal to the photo
+ * from which the store was built.
+ *
+ * @author beataj
+ * @version $Revision$
+ */
+public final class PhotoStore {
+
+    /** marks a missing identifier, timestamp or sequence identifier */
+    private static final long NO_LONG = Long.MIN_VALUE;
+
+    /** marks a missing sequence index */
+    private static final int NO_INT = Integer.MIN_VALUE;
+
+    /** marks a missing name */
+    private static final int NO_NAME = -1;
+
+    private static final char SEPARATOR = '/';
+
+    private final long[] ids;
+    private final long[] sequenceIds;
+    private final int[] sequenceIndexes;
+    private final long[] timestamps;
+    private final double[] lats;
+    private final double[] lons;
+
+    /** the heading of the photos, NaN if a photo has no heading */
+    private final double[] headings;
+    private final String[] usernames;
+    private final String[] directories;
+    private final NameColumn names;
+    private final NameColumn largeThumbnailNames;
+    private final NameColumn thumbnailNames;
+    private final List<Photo> photos = new PhotoList();
+
+    /** the positions of the photos sorted by identifier */
+    private final int[] idOrder;
+
+
+    /**
+     * Builds a new store containing the given photos.
+     *
+     * @param photos a collection of {@code Photo}s
+     */
+    public PhotoStore(final Collection<Photo> photos) {
+        final List<Photo> sorted = new ArrayList<>(photos);
+        sorted.sort(Comparator.comparingLong((Photo photo) -> value(photo.getSequenceId()))
+                .thenComparingInt(photo -> value(photo.getSequenceIndex())));
+        final int size = sorted.size();
+        ids = new long[size];
+        sequenceIds = new long[size];
+        sequenceIndexes = new int[size];
+        timestamps = new long[size];
+        lats = new double[size];
+        lons = new double[size];
+        headings = new double[size];
+        usernames = new String[size];
+        names = new NameColumn(size);
+        largeThumbnailNames = new NameColumn(size);
+        thumbnailNames = new NameColumn(size);
+
+        final Map<String, Integer> directoryIds = new HashMap<>();
+        final Map<String, String> strings = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            final Photo photo = sorted.get(i);
+            ids[i] = value(photo.getId());
+            sequenceIds[i] = value(photo.getSequenceId());
+            sequenceIndexes[i] = value(photo.getSequenceIndex());
+            timestamps[i] = value(photo.getTimestamp());
+            lats[i] = photo.getLocation().lat();
+            lons[i] = photo.getLocation().lon();
+            headings[i] = photo.getHeading() != null ? photo.getHeading() : Double.NaN;
+            usernames[i] = share(strings, photo.getUsername());
+            names.set(i, photo.getName(), directoryIds, strings);
+            largeThumbnailNames.set(i, photo.getLargeThumbnailName(), directoryIds, strings);
+            thumbnailNames.set(i, photo.getThumbnailName(), directoryIds, strings);
+        }
+        idOrder = IntStream.range(0, size).boxed().sorted(Comparator.comparingLong(position -> ids[position]))
+                .mapToInt(Integer::intValue).toArray();
+        directories = new String[directoryIds.size()];
+        for (final Map.Entry<String, Integer> entry : directoryIds.entrySet()) {
+            directories[entry.getValue()] = entry.getKey();
+        }
+    }
+
+
+    /**
+     * Returns the number of stored photos.
+     *
+     * @return an integer
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    public double getLat(final int position) {
+        return lats[position];
+    }
+
+    public double getLon(final int position) {
+        return lons[position];
+    }
+
+    /**
+     * Returns the heading of the photo from the given position.
+     *
+     * @param position the position of a photo in the store
+     * @return the heading, or NaN if the photo has no heading
+     */
+    public double getHeading(final int position) {
+        return headings[position];
+    }
+
+    /**
+     * Checks if the photo from the given position belongs to the given sequence.
+     *
+     * @param position the position of a photo in the store
+     * @param sequenceId a sequence identifier
+     * @return true if the photo belongs to the sequence; false otherwise
+     */
+    public boolean isInSequence(final int position, final Long sequenceId) {
+        return sequenceIds[position] == value(sequenceId);
+    }
+
+    /**
+     * Creates a {@code Photo} from the values stored at the given position.
+     *
+     * @param position the position of a photo in the store
+     * @return a {@code Photo}
+     */
+    public Photo get(final int position) {
+        final PhotoBuilder builder = new PhotoBuilder();
+        builder.id(object(ids[position]));
+        builder.sequenceId(object(sequenceIds[position]));
+        builder.sequenceIndex(sequenceIndexes[position] != NO_INT ? sequenceIndexes[position] : null);
+        builder.location(lats[position], lons[position]);
+        builder.name(names.get(position, directories));
+        builder.largeThumbnailName(largeThumbnailNames.get(position, directories));
+        builder.thumbnailName(thumbnailNames.get(position, directories));
+        builder.timestamp(object(timestamps[position]));
+        builder.heading(Double.isNaN(headings[position]) ? null : headings[position]);
+        builder.username(usernames[position]);
+        return builder.build();
+    }
+
+    /**
+     * Returns the stored photos as a read-only list. The list elements are created on access.
+     *
+     * @return a list of {@code Photo}s
+     */
+    public List<Photo> asList() {
+        return photos;
+    }
+
+    /**
+     * Returns the position of the photo belonging to the given sequence and having the given sequence index.
+     *
+     * @param sequenceId a sequence identifier
+     * @param sequenceIndex the position of the photo in the sequence
+     * @return the position of the photo in the store, or -1 if there is no such photo
+     */
+    public int indexOf(final Long sequenceId, final int sequenceIndex) {
+        final int position = lowerBound(value(sequenceId), sequenceIndex);
+        return position < size() && sequenceIds[position] == value(sequenceId)
+                && sequenceIndexes[position] == sequenceIndex ? position : -1;
+    }
+
+    /**
+     * Returns the position of the given photo. Photos are compared by their identifier.
+     *
+     * @param photo a {@code Photo}
+     * @return the position of the photo in the store, or -1 if the store does not contain the photo
+     */
+    public int indexOf(final Photo photo) {
+        final long id = value(photo.getId());
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (ids[idOrder[middle]] < id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low < size() && ids[idOrder[low]] == id ? idOrder[low] : -1;
+    }
+
+    /**
+     * Returns the first position whose sequence identifier and sequence index are not lower than the given ones.
+     */
+    private int lowerBound(final long sequenceId, final int sequenceIndex) {
+        int low = 0;
+        int high = size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            final int cmp = sequenceIds[middle] != sequenceId ? Long.compare(sequenceIds[middle], sequenceId)
+                    : Integer.compare(sequenceIndexes[middle], sequenceIndex);
+            if (cmp < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static long value(final Long value) {
+        return value != null ? value : NO_LONG;
+    }
+
+    private static int value(final Integer value) {
+        return value != null ? value : NO_INT;
+    }
+
+    private static Long object(final long value) {
+        return value != NO_LONG ? value : null;
+    }
+
+    private static String share(final Map<String, String> strings, final String value) {
+        return value != null ? strings.computeIfAbsent(value, key -> key) : null;
+    }
+
+
+    /**
+     * Stores a name column; a name is split in a directory identifier and a shared file name.
+     */
+    private static final class NameColumn {
+
+        private final int[] directoryIds;
+        private final String[] files;
+
+        private NameColumn(final int size) {
+            directoryIds = new int[size];
+            files = new String[size];
+        }
+
+        private void set(final int position, final String name, final Map<String, Integer> directoryIdMap,
+                final Map<String, String> strings) {
+            if (name == null) {
+                directoryIds[position] = NO_NAME;
+            } else {
+                final int index = name.lastIndexOf(SEPARATOR) + 1;
+                directoryIds[position] =
+                        directoryIdMap.computeIfAbsent(name.substring(0, index), key -> directoryIdMap.size());
+                files[position] = share(strings, name.substring(index));
+            }
+        }
+
+        private String get(final int position, final String[] directories) {
+            return directoryIds[position] != NO_NAME ? directories[directoryIds[position]] + files[position] : null;
+        }
+    }
+
+
+    /**
+     * Read-only list view of the store.
+     */
+    private final class PhotoList extends AbstractList<Photo> implements RandomAccess {
+
+        @Override
+        public Photo get(final int index) {
+            return PhotoStore.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return PhotoStore.this.size();
+        }
+
+        @Override
+        public int indexOf(final Object object) {
+            return object instanceof Photo ? PhotoStore.this.indexOf((Photo) object) : -1;
+        }
+
+        @Override
+        public boolean contains(final Object object) {
+            return indexOf(object) >= 0;
+        }
+    }
+}
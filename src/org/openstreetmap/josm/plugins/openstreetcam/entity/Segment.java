@@ -8,7 +8,9 @@
  */
 package org.openstreetmap.josm.plugins.openstreetcam.entity;
 
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
 import org.openstreetmap.josm.data.coor.LatLon;
 import com.telenav.josm.common.entity.EntityUtil;
 
@@ -26,7 +28,9 @@ public class Segment {
     private final Long to;
     private final Long wayId;
     private final Integer coverage;
-    private final List<LatLon> geometry;
+
+    /** the geometry in the lat1, lon1, lat2, lon2, ... format */
+    private final double[] coordinates;
 
 
     public Segment(final SegmentBuilder builder) {
@@ -35,7 +39,7 @@ public class Segment {
         this.to = builder.getTo();
         this.wayId = builder.getWayId();
         this.coverage = builder.getCoverage();
-        this.geometry = builder.getGeometry();
+        this.coordinates = builder.getGeometry() != null ? builder.getGeometry() : new double[0];
     }
 
 
@@ -59,8 +63,31 @@ public class Segment {
         return coverage;
     }
 
+    /**
+     * Returns a read-only view of the segment's geometry. The {@code LatLon} objects are created on demand, use the
+     * {@code getLat} and {@code getLon} methods when iterating large geometries.
+     *
+     * @return a list of {@code LatLon}s
+     */
     public List<LatLon> getGeometry() {
-        return geometry;
+        return new GeometryView();
+    }
+
+    /**
+     * Returns the number of points of the segment's geometry.
+     *
+     * @return an integer
+     */
+    public int getGeometrySize() {
+        return coordinates.length / 2;
+    }
+
+    public double getLat(final int index) {
+        return coordinates[index * 2];
+    }
+
+    public double getLon(final int index) {
+        return coordinates[index * 2 + 1];
     }
 
     @Override
@@ -82,4 +109,21 @@ public class Segment {
         }
         return result;
     }
+
+
+    private final class GeometryView extends AbstractList<LatLon> implements RandomAccess {
+
+        @Override
+        public LatLon get(final int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            return new LatLon(getLat(index), getLon(index));
+        }
+
+        @Override
+        public int size() {
+            return getGeometrySize();
+        }
+    }
 }
\ No newline at end of file
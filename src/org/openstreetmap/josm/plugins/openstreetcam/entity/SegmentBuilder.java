@@ -8,9 +8,6 @@
  */
 package org.openstreetmap.josm.plugins.openstreetcam.entity;
 
-import java.util.List;
-import org.openstreetmap.josm.data.coor.LatLon;
-
 
 /**
  * Builder for the {@code Segment} business entity.
@@ -25,7 +22,7 @@ public class SegmentBuilder {
     private Long to;
     private Long wayId;
     private Integer coverage;
-    private List<LatLon> geometry;
+    private double[] geometry;
 
 
     public SegmentBuilder() {}
@@ -50,7 +47,12 @@ public class SegmentBuilder {
         this.coverage = coverage;
     }
 
-    public void geometry(final List<LatLon> geometry) {
+    /**
+     * Sets the geometry of the segment.
+     *
+     * @param geometry the coordinates in the lat1, lon1, lat2, lon2, ... format
+     */
+    public void geometry(final double[] geometry) {
         this.geometry = geometry;
     }
 
@@ -74,7 +76,7 @@ public class SegmentBuilder {
         return coverage;
     }
 
-    public List<LatLon> getGeometry() {
+    public double[] getGeometry() {
         return geometry;
     }
 
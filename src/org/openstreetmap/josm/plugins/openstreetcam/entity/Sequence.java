@@ -8,7 +8,12 @@
  */
 package org.openstreetmap.josm.plugins.openstreetcam.entity;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.openstreetmap.josm.plugins.openstreetcam.index.PhotoIndex;
 
 
 /**
@@ -22,6 +27,11 @@ public class Sequence {
     private final Long id;
     private final List<Photo> photos;
 
+    /* indexes built on first use, since GSON does not invoke the constructor */
+    private transient PhotoIndex photoIndex;
+    private transient Map<Integer, Photo> photosBySequenceIndex;
+    private transient Set<Long> photoIds;
+
 
     public Sequence(final Long id, final List<Photo> photos) {
         this.id = id;
@@ -40,4 +50,54 @@ public class Sequence {
     public boolean hasPhotos() {
         return photos != null && !photos.isEmpty();
     }
+
+    /**
+     * Returns the photo located at the given position in the sequence. The method returns null if there is no such
+     * photo.
+     *
+     * @param sequenceIndex the sequence index of a photo
+     * @return a {@code Photo}
+     */
+    public synchronized Photo getPhoto(final int sequenceIndex) {
+        buildSequenceIndex();
+        return photosBySequenceIndex.get(sequenceIndex);
+    }
+
+    /**
+     * Checks if the given photo belongs to the sequence.
+     *
+     * @param photo a {@code Photo}
+     * @return true if the sequence contains the photo; false otherwise
+     */
+    public synchronized boolean containsPhoto(final Photo photo) {
+        buildSequenceIndex();
+        return photo != null && photoIds.contains(photo.getId());
+    }
+
+    private void buildSequenceIndex() {
+        if (photosBySequenceIndex == null) {
+            photosBySequenceIndex = new HashMap<>();
+            photoIds = new HashSet<>();
+            if (photos != null) {
+                for (final Photo photo : photos) {
+                    if (photo.getSequenceIndex() != null) {
+                        photosBySequenceIndex.put(photo.getSequenceIndex(), photo);
+                    }
+                    photoIds.add(photo.getId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the location based index of the sequence photos. The method returns null if the sequence has no photos.
+     *
+     * @return a {@code PhotoIndex}
+     */
+    public synchronized PhotoIndex getPhotoIndex() {
+        if (photoIndex == null && photos != null) {
+            photoIndex = new PhotoIndex(new PhotoStore(photos));
+        }
+        return photoIndex;
+    }
 }
\ No newline at end of file
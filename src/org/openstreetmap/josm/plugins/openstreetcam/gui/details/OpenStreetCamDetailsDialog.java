@@ -19,14 +19,19 @@ import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.Rectangle;
 import java.awt.event.KeyEvent;
-import java.awt.image.BufferedImage;
+import java.util.function.BiFunction;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.gui.dialogs.ToggleDialog;
 import org.openstreetmap.josm.plugins.openstreetcam.ImageHandler;
+import org.openstreetmap.josm.plugins.openstreetcam.ImageHandlerException;
 import org.openstreetmap.josm.plugins.openstreetcam.argument.DataType;
 import org.openstreetmap.josm.plugins.openstreetcam.argument.PhotoType;
+import org.openstreetmap.josm.plugins.openstreetcam.cache.DecodedImage;
 import org.openstreetmap.josm.plugins.openstreetcam.entity.Photo;
 import org.openstreetmap.josm.plugins.openstreetcam.gui.preferences.PreferenceEditor;
 import org.openstreetmap.josm.plugins.openstreetcam.observer.ClosestPhotoObserver;
@@ -36,11 +41,12 @@ import org.openstreetmap.josm.plugins.openstreetcam.observer.SequenceObserver;
 import org.openstreetmap.josm.plugins.openstreetcam.util.cnf.GuiConfig;
 import org.openstreetmap.josm.plugins.openstreetcam.util.cnf.IconConfig;
 import org.openstreetmap.josm.plugins.openstreetcam.util.pref.PreferenceManager;
+import org.openstreetmap.josm.plugins.openstreetcam.util.TaskScheduler;
+import org.openstreetmap.josm.plugins.openstreetcam.util.TaskScheduler.Lane;
 import org.openstreetmap.josm.tools.Shortcut;
 import com.telenav.josm.common.entity.Pair;
 import com.telenav.josm.common.gui.builder.ContainerBuilder;
 import com.telenav.josm.common.gui.builder.LabelBuilder;
-import com.telenav.josm.common.thread.ThreadPool;
 
 
 /**
@@ -59,6 +65,9 @@ public final class OpenStreetCamDetailsDialog extends ToggleDialog {
     /** dialog default height */
     private static final int DLG_HEIGHT = 150;
 
+    /** key of the photo loading task, the latest selected photo supersedes the queued one */
+    private static final String PHOTO_TASK = "photo";
+
     /** the dialog shortcut displayed on the left side slide menu */
     private static final Shortcut shortcut = Shortcut.registerShortcut(GuiConfig.getInstance().getPluginShortName(),
             GuiConfig.getInstance().getPluginLongName(), KeyEvent.VK_F10, Shortcut.NONE);
@@ -75,6 +84,9 @@ public final class OpenStreetCamDetailsDialog extends ToggleDialog {
     private Dimension size;
     private Pair<Photo, PhotoType> selectedElement;
 
+    /* the photo whose image is loading; the images of the previously selected photos are not displayed anymore */
+    private volatile Photo loadingPhoto;
+
 
     private OpenStreetCamDetailsDialog() {
         super(GuiConfig.getInstance().getPluginShortName(), IconConfig.getInstance().getDialogShortcutName(),
@@ -111,8 +123,11 @@ public final class OpenStreetCamDetailsDialog extends ToggleDialog {
 
     @Override
     protected void paintComponent(final Graphics graphics) {
-        if (selectedElement != null && selectedElement.getSecond().equals(PhotoType.THUMBNAIL) && isPanelMaximized()) {
-            loadPhoto(selectedElement.getFirst(), PhotoType.LARGE_THUMBNAIL);
+        if (selectedElement != null && selectedElement.getSecond().equals(PhotoType.THUMBNAIL)
+                && selectedElement.getFirst().equals(loadingPhoto) && isPanelMaximized()) {
+            final Photo photo = selectedElement.getFirst();
+            TaskScheduler.getInstance().execute(Lane.INTERACTIVE, PHOTO_TASK,
+                    () -> loadPhoto(photo, PhotoType.LARGE_THUMBNAIL));
             size = getSize();
         }
         super.paintComponent(graphics);
@@ -138,53 +153,143 @@ public final class OpenStreetCamDetailsDialog extends ToggleDialog {
      * @param photoType the type of photo to be loaded
      */
     public void updateUI(final Photo photo, final PhotoType photoType) {
+        loadingPhoto = photo;
         if (photo != null) {
-            // display loading text
-            ThreadPool.getInstance().execute(() -> {
-                pnlPhoto.displayLoadingMessage();
+            // the loading text or the lower resolution image is displayed by the image loading task
+            displayIfLoading(photo, () -> {
                 pnlBtn.updateUI(photo);
                 lblDetails.revalidate();
                 repaint();
             });
 
             // load image
-            ThreadPool.getInstance().execute(() -> loadPhoto(photo, photoType));
+            TaskScheduler.getInstance().execute(Lane.INTERACTIVE, PHOTO_TASK, () -> loadPhoto(photo, photoType));
+        } else {
+            SwingUtilities.invokeLater(() -> {
+                if (loadingPhoto == null) {
+                    selectedElement = null;
+                    lblDetails.setText("");
+                    lblDetails.setToolTipText(null);
+                    lblDetails.setIcon(null);
+                    pnlPhoto.updateUI(null, null);
+                    pnlBtn.updateUI(null);
+                    repaint();
+                }
+            });
+        }
+    }
+
+    /* decodes the image of the photo; the components are updated on the EDT, if the photo is still the loading one */
+    private void loadPhoto(final Photo photo, final PhotoType photoType) {
+        if (photo.equals(loadingPhoto)) {
+            final String detailsTxt = Formatter.formatPhotoDetails(photo);
+            final PhotoType finalPhotoType = photoType == null ? PhotoType.LARGE_THUMBNAIL : photoType;
+            boolean previewDisplayed = false;
+            if (finalPhotoType.equals(PhotoType.HIGH_QUALITY)
+                    && !ImageHandler.getInstance().isPhotoCached(photo, PhotoType.HIGH_QUALITY)) {
+                previewDisplayed = displayPreview(photo, detailsTxt);
+            }
+            if (!previewDisplayed) {
+                displayIfLoading(photo, pnlPhoto::displayLoadingMessage);
+            }
+            Pair<DecodedImage, PhotoType> imageResult = null;
+            try {
+                imageResult = ImageHandler.getInstance().loadPhoto(photo, finalPhotoType, pnlPhoto.getSize());
+            } catch (final Exception e) {
+                Main.warn(e, "Could not load photo:" + photo.getName());
+            }
+            final Pair<DecodedImage, PhotoType> loadedImage = imageResult;
+            final boolean upgrade = previewDisplayed;
+            displayIfLoading(photo, () -> {
+                if (loadedImage == null) {
+                    displayError(upgrade);
+                } else if (loadedImage.getFirst() != null) {
+                    displayPhoto(photo, loadedImage, detailsTxt, upgrade);
+                }
+                pnlBtn.updateUI(photo);
+                lblDetails.revalidate();
+                repaint();
+            });
+        }
+    }
+
+    private void displayPhoto(final Photo photo, final Pair<DecodedImage, PhotoType> imageResult,
+            final String detailsTxt, final boolean upgrade) {
+        selectedElement = new Pair<>(photo, imageResult.getSecond());
+        lblDetails.setText(detailsTxt);
+        if (PreferenceManager.getInstance().loadPhotoSettings().isHighQualityFlag()
+                && !imageResult.getSecond().equals(PhotoType.HIGH_QUALITY)) {
+            lblDetails.setIcon(IconConfig.getInstance().getWarningIcon());
+            lblDetails.setToolTipText(GuiConfig.getInstance().getWarningHighQualityPhoto());
         } else {
-            lblDetails.setText("");
             lblDetails.setToolTipText(null);
             lblDetails.setIcon(null);
-            pnlPhoto.updateUI(null);
-            pnlBtn.updateUI(null);
-            repaint();
+        }
+        final BiFunction<Rectangle, Dimension, DecodedImage> regionLoader =
+                regionLoader(photo, imageResult.getSecond());
+        if (upgrade) {
+            pnlPhoto.upgradeUI(imageResult.getFirst(), regionLoader);
+        } else {
+            pnlPhoto.updateUI(imageResult.getFirst(), regionLoader);
         }
     }
 
-    private void loadPhoto(final Photo photo, final PhotoType photoType) {
-        pnlPhoto.displayLoadingMessage();
-        final String detailsTxt = Formatter.formatPhotoDetails(photo);
-        final PhotoType finalPhotoType = photoType == null ? PhotoType.LARGE_THUMBNAIL : photoType;
+    private void displayError(final boolean previewDisplayed) {
+        if (previewDisplayed) {
+            // keep the lower resolution image
+            lblDetails.setIcon(IconConfig.getInstance().getWarningIcon());
+            lblDetails.setToolTipText(GuiConfig.getInstance().getWarningHighQualityPhoto());
+        } else {
+            pnlPhoto.displayErrorMessage();
+        }
+    }
+
+    /* displays a cached lower resolution image until the high quality image is downloaded */
+    private boolean displayPreview(final Photo photo, final String detailsTxt) {
+        boolean displayed = false;
         try {
-            final Pair<BufferedImage, PhotoType> imageResult =
-                    ImageHandler.getInstance().loadPhoto(photo, finalPhotoType);
-            selectedElement = new Pair<>(photo, imageResult.getSecond());
-            if (imageResult.getFirst() != null) {
-                lblDetails.setText(detailsTxt);
-                if (PreferenceManager.getInstance().loadPhotoSettings().isHighQualityFlag()
-                        && !imageResult.getSecond().equals(PhotoType.HIGH_QUALITY)) {
-                    lblDetails.setIcon(IconConfig.getInstance().getWarningIcon());
-                    lblDetails.setToolTipText(GuiConfig.getInstance().getWarningHighQualityPhoto());
-                } else {
+            final Pair<DecodedImage, PhotoType> imageResult =
+                    ImageHandler.getInstance().loadPreviewPhoto(photo, pnlPhoto.getSize());
+            if (imageResult.getFirst() != null && photo.equals(loadingPhoto)) {
+                displayIfLoading(photo, () -> {
+                    // the maximized panel should not trigger loading the large thumbnail meanwhile
+                    selectedElement = null;
+                    lblDetails.setText(detailsTxt);
                     lblDetails.setToolTipText(null);
                     lblDetails.setIcon(null);
-                }
-                pnlPhoto.updateUI(imageResult.getFirst());
+                    pnlPhoto.updateUI(imageResult.getFirst(), regionLoader(photo, imageResult.getSecond()));
+                    lblDetails.revalidate();
+                    repaint();
+                });
+                displayed = true;
             }
-        } catch (final Exception e) {
-            pnlPhoto.displayErrorMessage();
+        } catch (final ImageHandlerException e) {
+            Main.warn(e, "Could not load preview of photo:" + photo.getName());
         }
-        pnlBtn.updateUI(photo);
-        lblDetails.revalidate();
-        repaint();
+        return displayed;
+    }
+
+    /* runs the given component changes on the EDT, unless another photo was selected meanwhile */
+    private void displayIfLoading(final Photo photo, final Runnable display) {
+        SwingUtilities.invokeLater(() -> {
+            if (photo.equals(loadingPhoto)) {
+                display.run();
+            }
+        });
+    }
+
+    /* the zoomed regions are decoded from the cached photo */
+    private static BiFunction<Rectangle, Dimension, DecodedImage> regionLoader(final Photo photo,
+            final PhotoType photoType) {
+        return (region, regionSize) -> {
+            DecodedImage result = null;
+            try {
+                result = ImageHandler.getInstance().loadPhotoRegion(photo, photoType, region, regionSize);
+            } catch (final ImageHandlerException e) {
+                Main.warn(e, "Could not decode region of photo:" + photo.getName());
+            }
+            return result;
+        };
     }
 
     /**
@@ -17,27 +17,40 @@ package org.openstreetmap.josm.plugins.openstreetcam.gui.details;
 
 import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Point;
 import java.awt.Rectangle;
+import java.awt.RenderingHints;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
 import java.awt.event.MouseWheelEvent;
 import java.awt.event.MouseWheelListener;
 import java.awt.image.BufferedImage;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
 import javax.swing.BorderFactory;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import org.openstreetmap.josm.plugins.openstreetcam.cache.DecodedImage;
+import org.openstreetmap.josm.plugins.openstreetcam.util.TaskScheduler;
+import org.openstreetmap.josm.plugins.openstreetcam.util.TaskScheduler.Lane;
 import org.openstreetmap.josm.plugins.openstreetcam.util.cnf.GuiConfig;
 import com.telenav.josm.common.entity.Pair;
 import com.telenav.josm.common.gui.builder.LabelBuilder;
 
 
 /**
- * Displays the selected image.
+ * Displays the selected image. The image is decoded with a resolution matching the panel size; if the user zooms in
+ * beyond this resolution, the displayed region is decoded again with a higher resolution and drawn over the image.
+ * The displayed part is scaled to the panel resolution in the background, in this way a repaint while dragging the
+ * image only copies pixels.
  *
  * @author Beata
  * @version $Revision$
@@ -47,7 +60,26 @@ class PhotoPanel extends JPanel implements MouseWheelListener {
     private static final long serialVersionUID = -1550900781158007580L;
     private static final int MAX_ZOOM = 5;
 
-    private transient BufferedImage image;
+    private transient DecodedImage image;
+
+    /** a region of the image decoded with a higher resolution, or null */
+    private transient DecodedImage detail;
+
+    /** the region whose decoding is in progress, or null */
+    private Rectangle pendingRegion;
+
+    /** the displayed photo scaled to the panel resolution, or null */
+    private transient ScaledBuffer buffer;
+
+    /** the buffer whose scaling is in progress, or null */
+    private transient ScaledBuffer pendingBuffer;
+
+    /** the tasks decoding the pending region and scaling the pending buffer */
+    private transient Future<?> detailTask;
+    private transient Future<?> bufferTask;
+
+    /** decodes a region of the displayed photo, given in photo coordinates, for the given display size */
+    private transient BiFunction<Rectangle, Dimension, DecodedImage> regionLoader;
 
     /** a rectangle where the image is incorporated related to the outside panel */
     private Rectangle frame;
@@ -73,9 +105,18 @@ class PhotoPanel extends JPanel implements MouseWheelListener {
     }
 
 
-    void updateUI(final BufferedImage image) {
+    /**
+     * Displays the given image.
+     *
+     * @param image the image of the displayed photo, null if no photo is displayed
+     * @param regionLoader decodes a region of the photo with a higher resolution, it returns null if the region
+     * cannot be decoded
+     */
+    void updateUI(final DecodedImage image, final BiFunction<Rectangle, Dimension, DecodedImage> regionLoader) {
         removeAll();
         this.image = image;
+        this.regionLoader = regionLoader;
+        clearRegions();
         if (image != null) {
             currentView = new Rectangle(0, 0, image.getWidth(), image.getHeight());
         } else {
@@ -85,11 +126,43 @@ class PhotoPanel extends JPanel implements MouseWheelListener {
         repaint();
     }
 
+    /**
+     * Replaces the displayed image with another resolution of the same photo. The displayed part of the image is
+     * mapped to the new resolution, in this way the zoom level and the position are kept.
+     *
+     * @param image the new image of the displayed photo
+     * @param regionLoader decodes a region of the photo with a higher resolution, it returns null if the region
+     * cannot be decoded
+     */
+    void upgradeUI(final DecodedImage image, final BiFunction<Rectangle, Dimension, DecodedImage> regionLoader) {
+        if (this.image == null || currentView == null || image == null) {
+            updateUI(image, regionLoader);
+        } else {
+            final double scaleX = (double) image.getWidth() / this.image.getWidth();
+            final double scaleY = (double) image.getHeight() / this.image.getHeight();
+            final int width = Math.max(1, Math.min(image.getWidth(), (int) Math.round(currentView.width * scaleX)));
+            final int height =
+                    Math.max(1, Math.min(image.getHeight(), (int) Math.round(currentView.height * scaleY)));
+            final int x = Math.max(0, Math.min(image.getWidth() - width, (int) Math.round(currentView.x * scaleX)));
+            final int y =
+                    Math.max(0, Math.min(image.getHeight() - height, (int) Math.round(currentView.y * scaleY)));
+            if (startPoint != null) {
+                startPoint = new Point((int) Math.round(startPoint.x * scaleX),
+                        (int) Math.round(startPoint.y * scaleY));
+            }
+            removeAll();
+            this.image = image;
+            this.regionLoader = regionLoader;
+            clearRegions();
+            currentView = new Rectangle(x, y, width, height);
+            repaint();
+        }
+    }
+
     void displayErrorMessage() {
         removeAll();
         setBackground(Color.white);
-        image = null;
-        currentView = null;
+        clearImage();
         add(LabelBuilder.build(GuiConfig.getInstance().getErrorPhotoLoadingTxt(), Font.BOLD, Color.white),
                 BorderLayout.CENTER);
 
@@ -99,12 +172,32 @@ class PhotoPanel extends JPanel implements MouseWheelListener {
     void displayLoadingMessage() {
         removeAll();
         setBackground(Color.white);
-        image = null;
-        currentView = null;
+        clearImage();
         add(lblLoading, BorderLayout.CENTER);
         repaint();
     }
 
+    private void clearImage() {
+        image = null;
+        clearRegions();
+        regionLoader = null;
+        currentView = null;
+    }
+
+    /* drops the higher resolution region and the scaled buffer of the previous image */
+    private void clearRegions() {
+        if (detailTask != null) {
+            detailTask.cancel(false);
+        }
+        if (bufferTask != null) {
+            bufferTask.cancel(false);
+        }
+        detail = null;
+        pendingRegion = null;
+        buffer = null;
+        pendingBuffer = null;
+    }
+
 
     @Override
     public void mouseWheelMoved(final MouseWheelEvent e) {
@@ -272,9 +365,146 @@ class PhotoPanel extends JPanel implements MouseWheelListener {
         }
 
         frame = new Rectangle(marginLeft, marginTop, imageWidth, imageHeight);
-        graphics.drawImage(image, marginLeft, marginTop, marginLeft + imageWidth, marginTop + imageHeight,
-                currentView.x, currentView.y, currentView.x + currentView.width, currentView.y + currentView.height,
-                null);
+        if (fits(buffer)) {
+            // the buffer has the resolution of the panel, the displayed part is copied without scaling
+            final int bufferX = Math.max(0, Math.min(buffer.image.getWidth() - frame.width,
+                    (int) Math.round((double) (currentView.x - buffer.view.x) * frame.width / currentView.width)));
+            final int bufferY = Math.max(0, Math.min(buffer.image.getHeight() - frame.height,
+                    (int) Math.round((double) (currentView.y - buffer.view.y) * frame.height / currentView.height)));
+            graphics.drawImage(buffer.image, frame.x, frame.y, frame.x + frame.width, frame.y + frame.height, bufferX,
+                    bufferY, bufferX + frame.width, bufferY + frame.height, null);
+        } else {
+            drawView(graphics, image, detail, currentView, frame);
+            if (bufferTask != null && bufferTask.isCancelled()) {
+                pendingBuffer = null;
+            }
+            if (!fits(pendingBuffer)) {
+                loadBuffer();
+            }
+        }
+        loadDetail();
+    }
+
+    /* checks if the given buffer can be used for drawing the current view of the current image */
+    private boolean fits(final ScaledBuffer scaledBuffer) {
+        return scaledBuffer != null && scaledBuffer.source == image && scaledBuffer.detail == detail
+                && scaledBuffer.frameSize.equals(frame.getSize()) && scaledBuffer.viewSize.equals(currentView.getSize())
+                && scaledBuffer.view.contains(currentView);
+    }
+
+    /**
+     * Scales the current view to the panel resolution in the background. The buffer is extended with half of the view
+     * on every side, in this way dragging the image only copies a part of the buffer.
+     */
+    private void loadBuffer() {
+        final GraphicsConfiguration configuration = getGraphicsConfiguration();
+        if (configuration != null && frame.width > 0 && frame.height > 0) {
+            final Rectangle view = new Rectangle(currentView);
+            view.grow(currentView.width / 2, currentView.height / 2);
+            final ScaledBuffer request = new ScaledBuffer(image, detail,
+                    view.intersection(new Rectangle(image.getWidth(), image.getHeight())), frame.getSize(),
+                    currentView.getSize());
+            // the previous render is superseded by the new view
+            if (bufferTask != null) {
+                bufferTask.cancel(false);
+            }
+            pendingBuffer = request;
+            bufferTask = TaskScheduler.getInstance().execute(Lane.INTERACTIVE, () -> {
+                request.render(configuration);
+                SwingUtilities.invokeLater(() -> {
+                    if (pendingBuffer == request) {
+                        pendingBuffer = null;
+                    }
+                    // the buffer is dropped if meanwhile another image was displayed
+                    if (request.source == image && request.detail == detail) {
+                        buffer = request;
+                        repaint();
+                    }
+                });
+            });
+        }
+    }
+
+    /**
+     * Draws the given view of the photo to the given target rectangle, the parts decoded with a higher resolution are
+     * drawn over the image.
+     *
+     * @param graphics a graphic object {@code Graphics} on which the view will be drawn out
+     * @param image the decoded image of the photo
+     * @param detail a region of the photo decoded with a higher resolution, or null
+     * @param view the part of the photo to draw, in photo coordinates
+     * @param target the rectangle where the view is drawn, in the coordinates of the graphics
+     */
+    private static void drawView(final Graphics graphics, final DecodedImage image, final DecodedImage detail,
+            final Rectangle view, final Rectangle target) {
+        drawPart(graphics, image, view, view, target);
+        if (detail != null && detail.getRegion().intersects(view)) {
+            drawPart(graphics, detail, view.intersection(detail.getRegion()), view, target);
+        }
+    }
+
+    private static void drawPart(final Graphics graphics, final DecodedImage decodedImage, final Rectangle part,
+            final Rectangle view, final Rectangle target) {
+        final Rectangle region = decodedImage.getRegion();
+        final double sourceScaleX = (double) decodedImage.getImage().getWidth() / region.width;
+        final double sourceScaleY = (double) decodedImage.getImage().getHeight() / region.height;
+        final double targetScaleX = (double) target.width / view.width;
+        final double targetScaleY = (double) target.height / view.height;
+        graphics.drawImage(decodedImage.getImage(), target.x + (int) Math.round((part.x - view.x) * targetScaleX),
+                target.y + (int) Math.round((part.y - view.y) * targetScaleY),
+                target.x + (int) Math.round((part.x + part.width - view.x) * targetScaleX),
+                target.y + (int) Math.round((part.y + part.height - view.y) * targetScaleY),
+                (int) Math.round((part.x - region.x) * sourceScaleX),
+                (int) Math.round((part.y - region.y) * sourceScaleY),
+                (int) Math.round((part.x + part.width - region.x) * sourceScaleX),
+                (int) Math.round((part.y + part.height - region.y) * sourceScaleY), null);
+    }
+
+    /**
+     * Decodes the displayed region with a higher resolution in the background, if the user zoomed in beyond the
+     * resolution of the decoded image. The region is extended with half of the view on every side, in this way a
+     * small move does not need decoding again.
+     */
+    private void loadDetail() {
+        if (detailTask != null && detailTask.isCancelled()) {
+            pendingRegion = null;
+        }
+        if (regionLoader != null && frame.width > 0 && frame.height > 0) {
+            final int subsampling = Math.max(1,
+                    Math.min(currentView.width / frame.width, currentView.height / frame.height));
+            final boolean detailFits = detail != null && detail.getRegion().contains(currentView)
+                    && detail.getSubsampling() <= subsampling;
+            final boolean pending = pendingRegion != null && pendingRegion.contains(currentView);
+            if (image.getSubsampling() > subsampling && !detailFits && !pending) {
+                final Rectangle region = new Rectangle(currentView);
+                region.grow(currentView.width / 2, currentView.height / 2);
+                pendingRegion = region.intersection(new Rectangle(image.getWidth(), image.getHeight()));
+                loadDetail(pendingRegion, new Dimension(pendingRegion.width * frame.width / currentView.width,
+                        pendingRegion.height * frame.height / currentView.height));
+            }
+        }
+    }
+
+    private void loadDetail(final Rectangle region, final Dimension size) {
+        final DecodedImage base = image;
+        final BiFunction<Rectangle, Dimension, DecodedImage> loader = regionLoader;
+        // the previous decode is superseded by the new region
+        if (detailTask != null) {
+            detailTask.cancel(false);
+        }
+        detailTask = TaskScheduler.getInstance().execute(Lane.INTERACTIVE, () -> {
+            final DecodedImage result = loader.apply(region, size);
+            SwingUtilities.invokeLater(() -> {
+                // the result is dropped if meanwhile another image was displayed
+                if (base == image && result != null) {
+                    detail = result;
+                    if (region.equals(pendingRegion)) {
+                        pendingRegion = null;
+                    }
+                    repaint();
+                }
+            });
+        });
     }
 
     private class MousePressedAdapater extends MouseAdapter {
@@ -319,4 +549,43 @@ class PhotoPanel extends JPanel implements MouseWheelListener {
             }
         }
     }
-}
\ No newline at end of file
+
+
+    /**
+     * A region of the photo scaled to the panel resolution, in a device compatible image.
+     */
+    private static final class ScaledBuffer {
+
+        private final DecodedImage source;
+        private final DecodedImage detail;
+        private final Rectangle view;
+        private final Dimension frameSize;
+        private final Dimension viewSize;
+        private BufferedImage image;
+
+        private ScaledBuffer(final DecodedImage source, final DecodedImage detail, final Rectangle view,
+                final Dimension frameSize, final Dimension viewSize) {
+            this.source = source;
+            this.detail = detail;
+            this.view = view;
+            this.frameSize = frameSize;
+            this.viewSize = viewSize;
+        }
+
+        private void render(final GraphicsConfiguration configuration) {
+            final Rectangle target = new Rectangle(
+                    Math.max(1, (int) Math.round((double) view.width * frameSize.width / viewSize.width)),
+                    Math.max(1, (int) Math.round((double) view.height * frameSize.height / viewSize.height)));
+            final BufferedImage scaledImage = configuration.createCompatibleImage(target.width, target.height);
+            final Graphics2D graphics = scaledImage.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                drawView(graphics, source, detail, view, target);
+            } finally {
+                graphics.dispose();
+            }
+            image = scaledImage;
+        }
+    }
+}
@@ -22,12 +22,12 @@ import java.awt.Point;
 import java.awt.Stroke;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.List;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.gui.MapView;
 import org.openstreetmap.josm.plugins.openstreetcam.entity.DataSet;
 import org.openstreetmap.josm.plugins.openstreetcam.entity.Photo;
+import org.openstreetmap.josm.plugins.openstreetcam.entity.PhotoBuilder;
 import org.openstreetmap.josm.plugins.openstreetcam.entity.Sequence;
 import org.openstreetmap.josm.plugins.openstreetcam.util.Util;
 import org.openstreetmap.josm.plugins.openstreetcam.util.cnf.Config;
@@ -83,7 +83,7 @@ public final class OpenStreetCamLayer extends AbtractLayer {
             if (dataSet.getSegments() != null) {
                 paintHandler.drawSegments(graphics, mapView, dataSet.getSegments());
             } else if (dataSet.getPhotos() != null) {
-                paintHandler.drawPhotos(graphics, mapView, dataSet.getPhotos(), selectedPhoto, selectedSequence);
+                paintHandler.drawPhotos(graphics, mapView, dataSet.getPhotoIndex(), selectedPhoto, selectedSequence);
             }
             graphics.setComposite(originalComposite);
             graphics.setStroke(originalStorke);
@@ -100,8 +100,7 @@ public final class OpenStreetCamLayer extends AbtractLayer {
     public void setDataSet(final DataSet dataSet, final boolean checkSelectedPhoto) {
         this.dataSet = dataSet;
         if (checkSelectedPhoto && selectedPhoto != null) {
-            if (this.dataSet == null || this.dataSet.getPhotos() == null
-                    || !this.dataSet.getPhotos().contains(selectedPhoto)) {
+            if (this.dataSet == null || !this.dataSet.containsPhoto(selectedPhoto)) {
                 selectedPhoto = null;
             }
             if (closestPhotos != null) {
@@ -118,38 +117,26 @@ public final class OpenStreetCamLayer extends AbtractLayer {
      */
     public Photo nearbyPhoto(final Point point) {
         Photo photo = null;
-        if (selectedSequence != null && selectedSequence.getPhotos() != null) {
-            photo = Util.nearbyPhoto(selectedSequence.getPhotos(), point);
+        if (selectedSequence != null && selectedSequence.getPhotoIndex() != null) {
+            photo = Util.nearbyPhoto(selectedSequence.getPhotoIndex(), point);
         }
-        if (photo == null && dataSet != null && dataSet.getPhotos() != null) {
-            photo = Util.nearbyPhoto(dataSet.getPhotos(), point);
+        if (photo == null && dataSet != null && dataSet.getPhotoIndex() != null) {
+            photo = Util.nearbyPhoto(dataSet.getPhotoIndex(), point);
         }
         return photo;
     }
 
     /**
-     * Returns the photos that are either previous/next or close to the selected photo.
+     * Returns the photos of other sequences that are close to the selected photo, ordered by their distance from the
+     * selected photo.
      *
-     * @param prevNextCount the number of previous/next photos to be returned
      * @param nearbyCount the number of nearby photos to be returned
-     * @return a set of {@code Photo}s
+     * @return a list of {@code Photo}s
      */
-    public Set<Photo> nearbyPhotos(final int prevNextCount, final int nearbyCount) {
-        final Set<Photo> result = new HashSet<>();
-        if (selectedPhoto != null) {
-            for (int i = 1; i <= prevNextCount; i++) {
-                final Photo nextPhoto = sequencePhoto(selectedPhoto.getSequenceIndex() + i);
-                if (nextPhoto != null) {
-                    result.add(nextPhoto);
-                }
-                final Photo prevPhoto = sequencePhoto(selectedPhoto.getSequenceIndex() - i);
-                if (prevPhoto != null) {
-                    result.add(prevPhoto);
-                }
-            }
-            if (dataSet != null && dataSet.getPhotos() != null) {
-                result.addAll(Util.nearbyPhotos(dataSet.getPhotos(), selectedPhoto, nearbyCount));
-            }
+    public List<Photo> nearbyPhotos(final int nearbyCount) {
+        List<Photo> result = Collections.emptyList();
+        if (selectedPhoto != null && dataSet != null && dataSet.getPhotoIndex() != null) {
+            result = Util.nearbyPhotos(dataSet.getPhotoIndex(), selectedPhoto, nearbyCount);
         }
         return result;
     }
@@ -161,16 +148,7 @@ public final class OpenStreetCamLayer extends AbtractLayer {
      * @return boolean
      */
     public boolean isPhotoPartOfSequence(final Photo photo) {
-        boolean contains = false;
-        if (selectedSequence != null && (selectedSequence.getPhotos() != null)) {
-            for (final Photo elem : selectedSequence.getPhotos()) {
-                if (elem.equals(photo)) {
-                    contains = true;
-                    break;
-                }
-            }
-        }
-        return contains;
+        return selectedSequence != null && selectedSequence.containsPhoto(photo);
     }
 
     /**
@@ -183,22 +161,15 @@ public final class OpenStreetCamLayer extends AbtractLayer {
     public Photo sequencePhoto(final int index) {
         Photo photo = null;
         if (selectedSequence != null) {
-            for (final Photo elem : selectedSequence.getPhotos()) {
-                if (elem.getSequenceIndex().equals(index)) {
-                    photo = elem;
-                    // API issue: does not return username for sequence photos
-                    photo.setUsername(selectedPhoto.getUsername());
-                    break;
-                }
+            final Photo sequencePhoto = selectedSequence.getPhoto(index);
+            if (sequencePhoto != null) {
+                // API issue: does not return username for sequence photos
+                final PhotoBuilder builder = new PhotoBuilder(sequencePhoto);
+                builder.username(selectedPhoto.getUsername());
+                photo = builder.build();
             }
         } else if (dataSet != null && dataSet.getPhotos() != null) {
-            for (final Photo elem : dataSet.getPhotos()) {
-                if (elem.getSequenceIndex().equals(index)
-                        && elem.getSequenceId().equals(selectedPhoto.getSequenceId())) {
-                    photo = elem;
-                    break;
-                }
-            }
+            photo = dataSet.sequencePhoto(selectedPhoto.getSequenceId(), index);
         }
         return photo;
     }
@@ -231,9 +202,9 @@ public final class OpenStreetCamLayer extends AbtractLayer {
      */
     public void selectStartPhotoForClosestAction(final Photo photo) {
         startPhoto = photo;
-        if (photo != null && dataSet.getPhotos() != null) {
-            closestPhotos =
-                    Util.nearbyPhotos(dataSet.getPhotos(), startPhoto, Config.getInstance().getClosestPhotosMaxItems());
+        if (photo != null && dataSet != null && dataSet.getPhotoIndex() != null) {
+            closestPhotos = Util.nearbyPhotos(dataSet.getPhotoIndex(), startPhoto,
+                    Config.getInstance().getClosestPhotosMaxItems());
         } else {
             closestPhotos = Collections.emptyList();
         }
@@ -246,9 +217,9 @@ public final class OpenStreetCamLayer extends AbtractLayer {
      * @return a {@code Photo}
      */
     public Photo closestSelectedPhoto() {
-        if (closestPhotos.isEmpty()) {
-            closestPhotos =
-                    Util.nearbyPhotos(dataSet.getPhotos(), startPhoto, Config.getInstance().getClosestPhotosMaxItems());
+        if (closestPhotos.isEmpty() && startPhoto != null && dataSet != null && dataSet.getPhotoIndex() != null) {
+            closestPhotos = Util.nearbyPhotos(dataSet.getPhotoIndex(), startPhoto,
+                    Config.getInstance().getClosestPhotosMaxItems());
         }
         Photo closestPhoto = null;
         if (!closestPhotos.isEmpty()) {
@@ -19,11 +19,9 @@ import static org.openstreetmap.josm.plugins.openstreetcam.gui.layer.Constants.A
 import static org.openstreetmap.josm.plugins.openstreetcam.gui.layer.Constants.BING_LAYER_NAME;
 import static org.openstreetmap.josm.plugins.openstreetcam.gui.layer.Constants.MAPBOX_LAYER_NAME;
 import static org.openstreetmap.josm.plugins.openstreetcam.gui.layer.Constants.MIN_ARROW_ZOOM;
-import static org.openstreetmap.josm.plugins.openstreetcam.gui.layer.Constants.OPAQUE_ALPHA;
 import static org.openstreetmap.josm.plugins.openstreetcam.gui.layer.Constants.OPAQUE_COMPOSITE;
 import static org.openstreetmap.josm.plugins.openstreetcam.gui.layer.Constants.SEGMENT_COLOR;
 import static org.openstreetmap.josm.plugins.openstreetcam.gui.layer.Constants.SEGMENT_STROKE;
-import static org.openstreetmap.josm.plugins.openstreetcam.gui.layer.Constants.SEGMENT_TRANSPARENCY;
 import static org.openstreetmap.josm.plugins.openstreetcam.gui.layer.Constants.SEQUENCE_LINE;
 import static org.openstreetmap.josm.plugins.openstreetcam.gui.layer.Constants.SEQUENCE_LINE_COLOR;
 import static org.openstreetmap.josm.plugins.openstreetcam.gui.layer.Constants.TRANSPARENT_COMPOSITE;
@@ -31,22 +29,24 @@ import java.awt.AlphaComposite;
 import java.awt.Color;
 import java.awt.Composite;
 import java.awt.Graphics2D;
+import java.awt.Image;
 import java.awt.Point;
-import java.util.ArrayList;
+import java.awt.geom.Point2D;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map.Entry;
-import java.util.SortedMap;
-import java.util.SortedSet;
-import java.util.TreeMap;
-import java.util.TreeSet;
 import javax.swing.ImageIcon;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.Projection;
 import org.openstreetmap.josm.gui.MapView;
 import org.openstreetmap.josm.gui.layer.ImageryLayer;
 import org.openstreetmap.josm.gui.layer.Layer;
 import org.openstreetmap.josm.plugins.openstreetcam.entity.Photo;
+import org.openstreetmap.josm.plugins.openstreetcam.entity.PhotoStore;
 import org.openstreetmap.josm.plugins.openstreetcam.entity.Segment;
 import org.openstreetmap.josm.plugins.openstreetcam.entity.Sequence;
+import org.openstreetmap.josm.plugins.openstreetcam.index.PhotoIndex;
 import org.openstreetmap.josm.plugins.openstreetcam.util.Util;
 import org.openstreetmap.josm.plugins.openstreetcam.util.cnf.IconConfig;
 import com.telenav.josm.common.entity.Coordinate;
@@ -63,66 +63,93 @@ import com.telenav.josm.common.util.GeometryUtil;
  */
 class PaintHandler {
 
+    private SegmentRenderCache segmentRenderCache;
+    private final PhotoIconCache photoIconCache = new PhotoIconCache();
+
     /**
-     * Draws a list of photos to the map. A photo is represented by an icon on the map.
+     * Draws the visible photos to the map. A photo is represented by an icon on the map. Only the photos located in
+     * the currently visible areas are retrieved from the index and drawn; their location and heading is read directly
+     * from the photo store.
      *
      * @param graphics a {@code Graphics2D} used to draw elements to the map
      * @param mapView a {@code MapView} represents the current map view
-     * @param photos a list of {@code Photo}s
+     * @param photoIndex a {@code PhotoIndex} containing the photos
      * @param selectedPhoto the currently selected {@code Photo}
+     * @param selectedSequence the currently selected {@code Sequence}
      */
-    void drawPhotos(final Graphics2D graphics, final MapView mapView, final List<Photo> photos,
+    void drawPhotos(final Graphics2D graphics, final MapView mapView, final PhotoIndex photoIndex,
             final Photo selectedPhoto, final Sequence selectedSequence) {
         final Composite composite = selectedSequence != null && !selectedSequence.getPhotos().isEmpty()
                 ? TRANSPARENT_COMPOSITE : graphics.getComposite();
+        final List<Bounds> visibleBounds = Util.visibleBounds(mapView);
 
         // draw photo locations
         graphics.setComposite(composite);
-        for (final Photo photo : photos) {
-            if (!photo.equals(selectedPhoto)) {
-                drawPhoto(graphics, mapView, photo, false);
-            }
+        final PhotoStore store = photoIndex.getStore();
+        final int selectedPosition = selectedPhoto != null ? store.indexOf(selectedPhoto) : -1;
+        final BitSet drawnPositions = visibleBounds.size() > 1 ? new BitSet(store.size()) : null;
+        for (final Bounds bounds : visibleBounds) {
+            photoIndex.search(bounds.getMinLat(), bounds.getMinLon(), bounds.getMaxLat(), bounds.getMaxLon(),
+                    position -> {
+                        if (position != selectedPosition
+                                && (drawnPositions == null || !drawnPositions.get(position))) {
+                            if (drawnPositions != null) {
+                                drawnPositions.set(position);
+                            }
+                            drawPhoto(graphics, mapView, new LatLon(store.getLat(position), store.getLon(position)),
+                                    store.getHeading(position), false);
+                        }
+                    });
         }
 
         if (selectedSequence != null) {
             graphics.setComposite(OPAQUE_COMPOSITE);
             graphics.setStroke(SEQUENCE_LINE);
-            drawSequence(graphics, mapView, selectedSequence);
+            drawSequence(graphics, mapView, selectedSequence, visibleBounds);
         }
 
-        if (selectedPhoto != null) {
+        if (selectedPhoto != null && Util.containsLatLon(visibleBounds, selectedPhoto.getLocation())) {
             drawPhoto(graphics, mapView, selectedPhoto, true);
         }
     }
 
     private void drawPhoto(final Graphics2D graphics, final MapView mapView, final Photo photo,
             final boolean isSelected) {
-        if (Util.containsLatLon(mapView, photo.getLocation())) {
-            final Point point = mapView.getPoint(photo.getLocation());
-            if (photo.getHeading() != null) {
-                final ImageIcon icon = isSelected ? IconConfig.getInstance().getPhotoSelectedIcon()
-                        : IconConfig.getInstance().getPhotoIcon();
-                PaintManager.drawIcon(graphics, icon, point, photo.getHeading());
-            } else {
-                final ImageIcon icon = isSelected ? IconConfig.getInstance().getPhotoNoHeadingSelectedIcon()
-                        : IconConfig.getInstance().getPhotoNoHeadingIcon();
-                PaintManager.drawIcon(graphics, icon, point);
-            }
+        drawPhoto(graphics, mapView, photo.getLocation(),
+                photo.getHeading() != null ? photo.getHeading() : Double.NaN, isSelected);
+    }
+
+    private void drawPhoto(final Graphics2D graphics, final MapView mapView, final LatLon location,
+            final double heading, final boolean isSelected) {
+        final Point2D point = mapView.getPoint2D(location);
+        final Image image;
+        if (!Double.isNaN(heading)) {
+            final ImageIcon icon = isSelected ? IconConfig.getInstance().getPhotoSelectedIcon()
+                    : IconConfig.getInstance().getPhotoIcon();
+            image = photoIconCache.rotatedIcon(icon, heading);
+        } else {
+            final ImageIcon icon = isSelected ? IconConfig.getInstance().getPhotoNoHeadingSelectedIcon()
+                    : IconConfig.getInstance().getPhotoNoHeadingIcon();
+            image = icon.getImage();
         }
+        graphics.drawImage(image, (int) point.getX() - image.getWidth(null) / 2,
+                (int) point.getY() - image.getHeight(null) / 2, null);
     }
 
-    private void drawSequence(final Graphics2D graphics, final MapView mapView, final Sequence sequence) {
+    private void drawSequence(final Graphics2D graphics, final MapView mapView, final Sequence sequence,
+            final List<Bounds> visibleBounds) {
         final Double length =
                 Util.zoom(mapView.getRealBounds()) > MIN_ARROW_ZOOM ? ARROW_LENGTH * mapView.getScale() : null;
         graphics.setColor(getSequenceColor(mapView));
 
         Photo prevPhoto = sequence.getPhotos().get(0);
+        boolean prevVisible = Util.containsLatLon(visibleBounds, prevPhoto.getLocation());
         for (int i = 1; i <= sequence.getPhotos().size() - 1; i++) {
             final Photo currentPhoto = sequence.getPhotos().get(i);
+            final boolean currentVisible = Util.containsLatLon(visibleBounds, currentPhoto.getLocation());
 
             // at least one of the photos is in current view draw line
-            if (Util.containsLatLon(mapView, prevPhoto.getLocation())
-                    || Util.containsLatLon(mapView, currentPhoto.getLocation())) {
+            if (prevVisible || currentVisible) {
                 final Pair<Point, Point> lineGeometry = new Pair<>(mapView.getPoint(prevPhoto.getLocation()),
                         mapView.getPoint(currentPhoto.getLocation()));
                 if (length == null) {
@@ -134,11 +161,16 @@ class PaintHandler {
                 }
             }
 
-            drawPhoto(graphics, mapView, prevPhoto, false);
+            if (prevVisible) {
+                drawPhoto(graphics, mapView, prevPhoto, false);
+            }
             prevPhoto = currentPhoto;
+            prevVisible = currentVisible;
         }
 
-        drawPhoto(graphics, mapView, prevPhoto, false);
+        if (prevVisible) {
+            drawPhoto(graphics, mapView, prevPhoto, false);
+        }
     }
 
     private Color getSequenceColor(final MapView mapView) {
@@ -171,73 +203,20 @@ class PaintHandler {
     }
 
     /**
-     * Draws a list of segments to the map.
+     * Draws a list of segments to the map. The projected segment geometries are cached, and reused until the segment
+     * list or the map projection changes.
      *
      * @param graphics a {@code Graphics2D} used to draw elements to the map
      * @param mapView a {@code MapView} represents the current map view
      * @param segments a list of {@code Segment}s
      */
     void drawSegments(final Graphics2D graphics, final MapView mapView, final List<Segment> segments) {
+        final Projection projection = Main.getProjection();
+        if (segmentRenderCache == null || !segmentRenderCache.isValid(segments, projection)) {
+            segmentRenderCache = new SegmentRenderCache(segments, projection);
+        }
         graphics.setColor(SEGMENT_COLOR);
         graphics.setStroke(SEGMENT_STROKE);
-        final SortedMap<Integer, Float> transparencyMap = generateSegmentTransparencyMap(segments);
-        final AlphaComposite originalComposite = (AlphaComposite) graphics.getComposite();
-        for (final Segment segment : segments) {
-            final Float val = segmentTransparency(transparencyMap, segment.getCoverage(), originalComposite.getAlpha());
-            graphics.setComposite(originalComposite.derive(val));
-            PaintManager.drawSegment(graphics, toPoints(mapView, segment.getGeometry()));
-        }
-    }
-
-    private List<Point> toPoints(final MapView mapView, final List<LatLon> geometry) {
-        final List<Point> points = new ArrayList<>();
-        for (final LatLon latLon : geometry) {
-            points.add(mapView.getPoint(latLon));
-        }
-        return points;
-    }
-
-    private SortedMap<Integer, Float> generateSegmentTransparencyMap(final List<Segment> segments) {
-        final SortedMap<Integer, Float> map = new TreeMap<>();
-        if (!segments.isEmpty()) {
-            final SortedSet<Integer> coverages = new TreeSet<>();
-            for (final Segment segment : segments) {
-                coverages.add(segment.getCoverage());
-            }
-            map.put(coverages.first(), SEGMENT_TRANSPARENCY[0]);
-            map.put(coverages.last(), SEGMENT_TRANSPARENCY[SEGMENT_TRANSPARENCY.length - 1]);
-
-            final Integer[] list = coverages.toArray(new Integer[0]);
-            final int count = coverages.size() / SEGMENT_TRANSPARENCY.length;
-            int index = 0;
-            for (int i = 0; i < SEGMENT_TRANSPARENCY.length - 1; i++) {
-                index += count;
-                map.put(list[index], SEGMENT_TRANSPARENCY[i]);
-
-            }
-        }
-        return map;
-    }
-
-    private float segmentTransparency(final SortedMap<Integer, Float> map, final Integer coverage,
-            final float originalTransparency) {
-        float transparency = SEGMENT_TRANSPARENCY[0];
-        if (map.size() > 1) {
-            for (final Entry<Integer, Float> entry : map.entrySet()) {
-                if (coverage <= entry.getKey()) {
-                    transparency = entry.getValue();
-                    break;
-                }
-            }
-
-        } else {
-            transparency = map.get(coverage);
-        }
-        if (originalTransparency < OPAQUE_ALPHA) {
-            // take into account global JOSM transparency setting
-            transparency =
-                    OPAQUE_ALPHA.equals(transparency) ? originalTransparency : (originalTransparency * transparency);
-        }
-        return transparency;
+        segmentRenderCache.draw(graphics, mapView, (AlphaComposite) graphics.getComposite());
     }
-}
\ No newline at end of file
+}
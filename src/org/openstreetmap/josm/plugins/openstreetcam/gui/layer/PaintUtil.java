@@ -72,12 +72,16 @@ final class PaintUtil {
         } else {
             transparency = map.get(coverage);
         }
+        return segmentTransparency(transparency, originalTransparency);
+    }
+
+    static float segmentTransparency(final float transparency, final float originalTransparency) {
+        float result = transparency;
         if (originalTransparency < OPAQUE_ALPHA) {
             // take into account global JOSM transparency setting
-            transparency =
-                    OPAQUE_ALPHA.equals(transparency) ? originalTransparency : (originalTransparency * transparency);
+            result = OPAQUE_ALPHA.equals(transparency) ? originalTransparency : (originalTransparency * transparency);
         }
-        return transparency;
+        return result;
     }
 
     static Color sequenceColor(final MapView mapView) {
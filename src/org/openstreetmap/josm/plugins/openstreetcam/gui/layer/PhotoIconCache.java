@@ -0,0 +1,65 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.gui.layer;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import javax.swing.ImageIcon;
+
+
+/**
+ * Caches the rotated versions of the photo icons. The heading is rounded to a multiple of {@code ANGLE_STEP} degrees,
+ * in this way each icon has a limited number of pre-rotated sprites, that are drawn without any transformation.
+ *
+ * @author beataj
+ * @version $Revision$
+ */
+final class PhotoIconCache {
+
+    private static final int ANGLE_STEP = 5;
+    private static final int ANGLE_360 = 360;
+    private static final int SPRITE_COUNT = ANGLE_360 / ANGLE_STEP;
+
+    private final Map<ImageIcon, BufferedImage[]> sprites = new IdentityHashMap<>();
+
+
+    /**
+     * Returns the given icon rotated clockwise with the given heading. The returned image is centered on the icon's
+     * center.
+     *
+     * @param icon the {@code ImageIcon} to rotate
+     * @param heading the heading in degrees
+     * @return a {@code BufferedImage}
+     */
+    BufferedImage rotatedIcon(final ImageIcon icon, final double heading) {
+        final BufferedImage[] iconSprites = sprites.computeIfAbsent(icon, key -> new BufferedImage[SPRITE_COUNT]);
+        final int idx = (int) Math.round(((heading % ANGLE_360) + ANGLE_360) % ANGLE_360 / ANGLE_STEP) % SPRITE_COUNT;
+        if (iconSprites[idx] == null) {
+            iconSprites[idx] = rotate(icon, idx * ANGLE_STEP);
+        }
+        return iconSprites[idx];
+    }
+
+    private static BufferedImage rotate(final ImageIcon icon, final double angle) {
+        // the sprite is large enough to contain the icon rotated with any angle
+        final int size = (int) Math.ceil(Math.hypot(icon.getIconWidth(), icon.getIconHeight()));
+        final BufferedImage sprite = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D graphics = sprite.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        graphics.rotate(Math.toRadians(angle), size / 2.0, size / 2.0);
+        graphics.drawImage(icon.getImage(), (size - icon.getIconWidth()) / 2, (size - icon.getIconHeight()) / 2,
+                null);
+        graphics.dispose();
+        return sprite;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.gui.layer;
+
+import static org.openstreetmap.josm.plugins.openstreetcam.gui.layer.Constants.OPAQUE_ALPHA;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import org.openstreetmap.josm.data.coor.EastNorth;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.projection.Projection;
+import org.openstreetmap.josm.gui.MapView;
+import org.openstreetmap.josm.plugins.openstreetcam.entity.Segment;
+
+
+/**
+ * Holds the segments of a data set in a form that is ready to be drawn. The segment geometries are projected once to
+ * {@code EastNorth} and stored in packed arrays, and the segments are grouped by their transparency. Drawing a frame
+ * only transforms the visible vertices to screen coordinates into a reused path.
+ *
+ * @author beataj
+ * @version $Revision$
+ */
+final class SegmentRenderCache {
+
+    private final List<Segment> segments;
+    private final Projection projection;
+
+    /** segment geometries in the east1, north1, east2, north2, ... format */
+    private final double[][] geometries;
+
+    /** segment bounds in the minEast, minNorth, maxEast, maxNorth format */
+    private final double[] bounds;
+
+    /** the distinct segment transparencies, the segments from bucketSegments[i] are drawn with bucketAlphas[i] */
+    private final float[] bucketAlphas;
+    private final int[][] bucketSegments;
+
+    private final Path2D.Double path = new Path2D.Double();
+
+
+    SegmentRenderCache(final List<Segment> segments, final Projection projection) {
+        this.segments = segments;
+        this.projection = projection;
+        final int size = segments.size();
+        geometries = new double[size][];
+        bounds = new double[size * 4];
+        final float[] alphas = new float[size];
+        final SortedMap<Integer, Float> transparencyMap = PaintUtil.generateSegmentTransparencyMap(segments);
+        for (int i = 0; i < size; i++) {
+            final Segment segment = segments.get(i);
+            geometries[i] = project(segment, i);
+            alphas[i] = PaintUtil.segmentTransparency(transparencyMap, segment.getCoverage(), OPAQUE_ALPHA);
+        }
+
+        // group the segments by transparency
+        final float[] distinctAlphas = alphas.clone();
+        Arrays.sort(distinctAlphas);
+        int bucketCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0 || distinctAlphas[i] != distinctAlphas[i - 1]) {
+                distinctAlphas[bucketCount++] = distinctAlphas[i];
+            }
+        }
+        bucketAlphas = Arrays.copyOf(distinctAlphas, bucketCount);
+        final int[] bucketSizes = new int[bucketCount];
+        final int[] segmentBuckets = new int[size];
+        for (int i = 0; i < size; i++) {
+            segmentBuckets[i] = Arrays.binarySearch(bucketAlphas, alphas[i]);
+            bucketSizes[segmentBuckets[i]]++;
+        }
+        bucketSegments = new int[bucketCount][];
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            bucketSegments[bucket] = new int[bucketSizes[bucket]];
+            bucketSizes[bucket] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            final int bucket = segmentBuckets[i];
+            bucketSegments[bucket][bucketSizes[bucket]++] = i;
+        }
+    }
+
+
+    /**
+     * Checks if the cache was built from the given segments using the given projection.
+     *
+     * @param segments a list of {@code Segment}s
+     * @param projection the current {@code Projection}
+     * @return true if the cache can be used for drawing the given segments
+     */
+    boolean isValid(final List<Segment> segments, final Projection projection) {
+        return this.segments == segments && this.projection == projection;
+    }
+
+    /**
+     * Draws the visible segments. The graphics color and stroke should be set before calling this method.
+     *
+     * @param graphics a {@code Graphics2D} used to draw elements to the map
+     * @param mapView a {@code MapView} represents the current map view
+     * @param originalComposite the composite of the graphics, takes into account the JOSM layer transparency
+     */
+    void draw(final Graphics2D graphics, final MapView mapView, final AlphaComposite originalComposite) {
+        final EastNorth center = mapView.getCenter();
+        final Point2D centerPoint = mapView.getPoint2D(center);
+        final double scale = mapView.getScale();
+        final double minEast = center.east() - centerPoint.getX() * scale;
+        final double maxEast = minEast + mapView.getWidth() * scale;
+        final double maxNorth = center.north() + centerPoint.getY() * scale;
+        final double minNorth = maxNorth - mapView.getHeight() * scale;
+
+        for (int bucket = 0; bucket < bucketAlphas.length; bucket++) {
+            path.reset();
+            boolean visible = false;
+            for (final int segment : bucketSegments[bucket]) {
+                final int boundsIdx = segment * 4;
+                if (bounds[boundsIdx] <= maxEast && bounds[boundsIdx + 2] >= minEast
+                        && bounds[boundsIdx + 1] <= maxNorth && bounds[boundsIdx + 3] >= minNorth) {
+                    final double[] geometry = geometries[segment];
+                    for (int i = 0; i < geometry.length; i += 2) {
+                        final double x = centerPoint.getX() + (geometry[i] - center.east()) / scale;
+                        final double y = centerPoint.getY() - (geometry[i + 1] - center.north()) / scale;
+                        if (i == 0) {
+                            path.moveTo(x, y);
+                        } else {
+                            path.lineTo(x, y);
+                        }
+                    }
+                    visible = true;
+                }
+            }
+            if (visible) {
+                graphics.setComposite(originalComposite.derive(PaintUtil.segmentTransparency(bucketAlphas[bucket],
+                        originalComposite.getAlpha())));
+                graphics.draw(path);
+            }
+        }
+        path.reset();
+    }
+
+    private double[] project(final Segment segment, final int segmentIdx) {
+        final int boundsIdx = segmentIdx * 4;
+        bounds[boundsIdx] = Double.MAX_VALUE;
+        bounds[boundsIdx + 1] = Double.MAX_VALUE;
+        bounds[boundsIdx + 2] = -Double.MAX_VALUE;
+        bounds[boundsIdx + 3] = -Double.MAX_VALUE;
+        final double[] result = new double[segment.getGeometrySize() * 2];
+        for (int i = 0; i < result.length; i += 2) {
+            final EastNorth eastNorth =
+                    projection.latlon2eastNorth(new LatLon(segment.getLat(i / 2), segment.getLon(i / 2)));
+            result[i] = eastNorth.east();
+            result[i + 1] = eastNorth.north();
+            bounds[boundsIdx] = Math.min(bounds[boundsIdx], result[i]);
+            bounds[boundsIdx + 1] = Math.min(bounds[boundsIdx + 1], result[i + 1]);
+            bounds[boundsIdx + 2] = Math.max(bounds[boundsIdx + 2], result[i]);
+            bounds[boundsIdx + 3] = Math.max(bounds[boundsIdx + 3], result[i + 1]);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.plugins.openstreetcam.entity.Photo;
+import org.openstreetmap.josm.plugins.openstreetcam.entity.PhotoStore;
+
+
+/**
+ * Uniform lat/lon grid over the photos of a {@code PhotoStore}. The grid is built once and it is read-only afterwards,
+ * so it can be queried from any thread. The store positions of the photos are kept cell by cell in packed arrays, in
+ * this way a query visits only the cells that intersect the searched area.
+ *
+ * @author beataj
+ * @version $Revision$
+ */
+public class PhotoIndex {
+
+    /** the average number of photos per grid cell */
+    private static final int CELL_ITEMS = 4;
+    private static final double MIN_EXTENT = 1e-9;
+
+    private final double minLat;
+    private final double minLon;
+    private final double cellHeight;
+    private final double cellWidth;
+    private final int rows;
+    private final int cols;
+
+    private final PhotoStore store;
+
+    /** the photos from cell i are stored in the [cellStart[i], cellStart[i+1]) interval */
+    private final int[] cellStart;
+
+    /** the positions of the photos in the store */
+    private final int[] positions;
+    private final double[] lats;
+    private final double[] lons;
+
+
+    /**
+     * Builds a new index over the photos of the given store.
+     *
+     * @param store a {@code PhotoStore} containing the photos
+     */
+    public PhotoIndex(final PhotoStore store) {
+        this.store = store;
+        final int size = store.size();
+        double south = Double.MAX_VALUE;
+        double west = Double.MAX_VALUE;
+        double north = -Double.MAX_VALUE;
+        double east = -Double.MAX_VALUE;
+        for (int i = 0; i < size; i++) {
+            south = Math.min(south, store.getLat(i));
+            north = Math.max(north, store.getLat(i));
+            west = Math.min(west, store.getLon(i));
+            east = Math.max(east, store.getLon(i));
+        }
+        if (size == 0) {
+            south = north = west = east = 0;
+        }
+        final double height = Math.max(north - south, MIN_EXTENT);
+        final double width = Math.max(east - west, MIN_EXTENT);
+        final int cells = Math.max(1, size / CELL_ITEMS);
+        this.cols = Math.max(1, Math.min(cells, (int) Math.ceil(Math.sqrt(cells * width / height))));
+        this.rows = Math.max(1, (int) Math.ceil((double) cells / cols));
+        this.minLat = south;
+        this.minLon = west;
+        this.cellHeight = height / rows;
+        this.cellWidth = width / cols;
+
+        // counting sort of the photos by cell
+        final int[] cellIds = new int[size];
+        this.cellStart = new int[rows * cols + 1];
+        for (int i = 0; i < size; i++) {
+            cellIds[i] = cell(row(store.getLat(i)), col(store.getLon(i)));
+            cellStart[cellIds[i] + 1]++;
+        }
+        for (int cell = 0; cell < rows * cols; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        final int[] next = cellStart.clone();
+        this.positions = new int[size];
+        this.lats = new double[size];
+        this.lons = new double[size];
+        for (int i = 0; i < size; i++) {
+            final int pos = next[cellIds[i]]++;
+            this.positions[pos] = i;
+            this.lats[pos] = store.getLat(i);
+            this.lons[pos] = store.getLon(i);
+        }
+    }
+
+
+    public PhotoStore getStore() {
+        return store;
+    }
+
+
+    /**
+     * Returns the photos located inside the given area. The borders of the area are inclusive.
+     *
+     * @param south the southern latitude of the area
+     * @param west the western longitude of the area
+     * @param north the northern latitude of the area
+     * @param east the eastern longitude of the area
+     * @return a list of {@code Photo}s
+     */
+    public List<Photo> search(final double south, final double west, final double north, final double east) {
+        final List<Photo> result = new ArrayList<>();
+        search(south, west, north, east, position -> result.add(store.get(position)));
+        return result;
+    }
+
+    /**
+     * Passes the store position of the photos located inside the given area to the given consumer. The borders of the
+     * area are inclusive. No {@code Photo} object is created by this method.
+     *
+     * @param south the southern latitude of the area
+     * @param west the western longitude of the area
+     * @param north the northern latitude of the area
+     * @param east the eastern longitude of the area
+     * @param consumer an {@code IntConsumer} receiving the positions of the photos in the store
+     */
+    public void search(final double south, final double west, final double north, final double east,
+            final IntConsumer consumer) {
+        if (positions.length > 0 && south <= north && west <= east) {
+            final int minRow = row(south);
+            final int maxRow = row(north);
+            final int minCol = col(west);
+            final int maxCol = col(east);
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int col = minCol; col <= maxCol; col++) {
+                    final int cell = cell(row, col);
+                    for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+                        if (lats[i] >= south && lats[i] <= north && lons[i] >= west && lons[i] <= east) {
+                            consumer.accept(positions[i]);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the photos closest to the given location, ordered by distance. Only the photos located inside the square
+     * having the given half side around the location, and accepted by the filter, are returned. Cells are visited ring
+     * by ring starting from the location's cell, while a bounded max-heap holds the best candidates; the search stops
+     * as soon as no farther ring can hold a closer photo. Photos located at the same distance do not replace each
+     * other.
+     *
+     * @param location a {@code LatLon} the reference location
+     * @param count the maximum number of photos to return
+     * @param radius the half side, in degrees, of the searched square
+     * @param filter an {@code IntPredicate} the store position of the returned photos should satisfy
+     * @return a list of {@code Photo}s
+     */
+    public List<Photo> nearest(final LatLon location, final int count, final double radius,
+            final IntPredicate filter) {
+        final List<Photo> result = new ArrayList<>();
+        if (positions.length > 0 && count > 0) {
+            final PriorityQueue<Candidate> heap = new PriorityQueue<>(count, Collections.reverseOrder());
+            final double lat = location.lat();
+            final double lon = location.lon();
+            final int minRow = row(lat - radius);
+            final int maxRow = row(lat + radius);
+            final int minCol = col(lon - radius);
+            final int maxCol = col(lon + radius);
+            final int centerRow = row(lat);
+            final int centerCol = col(lon);
+            final int maxRing = Math.max(Math.max(centerRow - minRow, maxRow - centerRow),
+                    Math.max(centerCol - minCol, maxCol - centerCol));
+            final double cellSize = Math.min(cellHeight, cellWidth);
+            for (int ring = 0; ring <= maxRing
+                    && (heap.size() < count || (ring - 1) * cellSize <= heap.peek().distance); ring++) {
+                for (int row = Math.max(minRow, centerRow - ring); row <= Math.min(maxRow, centerRow + ring); row++) {
+                    final boolean edgeRow = Math.abs(row - centerRow) == ring;
+                    for (int col = Math.max(minCol, centerCol - ring); col <= Math.min(maxCol, centerCol + ring);
+                            col++) {
+                        if (edgeRow || Math.abs(col - centerCol) == ring) {
+                            collect(cell(row, col), lat, lon, radius, count, filter, heap);
+                        }
+                    }
+                }
+            }
+            final Candidate[] candidates = heap.toArray(new Candidate[0]);
+            Arrays.sort(candidates);
+            for (final Candidate candidate : candidates) {
+                result.add(store.get(candidate.position));
+            }
+        }
+        return result;
+    }
+
+    private void collect(final int cell, final double lat, final double lon, final double radius, final int count,
+            final IntPredicate filter, final PriorityQueue<Candidate> heap) {
+        for (int i = cellStart[cell]; i < cellStart[cell + 1]; i++) {
+            final double dLat = lats[i] - lat;
+            final double dLon = lons[i] - lon;
+            if (Math.abs(dLat) <= radius && Math.abs(dLon) <= radius) {
+                final double distance = Math.sqrt(dLat * dLat + dLon * dLon);
+                if ((heap.size() < count || distance < heap.peek().distance) && filter.test(positions[i])) {
+                    if (heap.size() == count) {
+                        heap.poll();
+                    }
+                    heap.add(new Candidate(positions[i], distance));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of indexed photos.
+     *
+     * @return an integer
+     */
+    public int size() {
+        return positions.length;
+    }
+
+    private int row(final double lat) {
+        return clamp((int) Math.floor((lat - minLat) / cellHeight), rows);
+    }
+
+    private int col(final double lon) {
+        return clamp((int) Math.floor((lon - minLon) / cellWidth), cols);
+    }
+
+    private int cell(final int row, final int col) {
+        return row * cols + col;
+    }
+
+    private static int clamp(final int value, final int count) {
+        return value < 0 ? 0 : (value >= count ? count - 1 : value);
+    }
+
+
+    /**
+     * The store position of a photo together with its distance from a reference location.
+     */
+    private static final class Candidate implements Comparable<Candidate> {
+
+        private final int position;
+        private final double distance;
+
+        private Candidate(final int position, final double distance) {
+            this.position = position;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(final Candidate other) {
+            return Double.compare(distance, other.distance);
+        }
+    }
+}
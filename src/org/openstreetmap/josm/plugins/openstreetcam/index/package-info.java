@@ -0,0 +1,4 @@
+/**
+ * Holds spatial index related logic.
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.index;
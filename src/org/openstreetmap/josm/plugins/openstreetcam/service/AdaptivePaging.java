@@ -0,0 +1,113 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import com.telenav.josm.common.argument.BoundingBox;
+
+
+/**
+ * Learns the paging of a paginated list method from the previous responses. The number of items per page is adjusted
+ * such that reading a full page takes about the target time, and the item density observed at each zoom level is used
+ * for estimating the number of pages of a new area before its first page is read.
+ *
+ * @author beataj
+ * @version $Revision$
+ */
+final class AdaptivePaging {
+
+    /** the weight of a new observation in the page size */
+    private static final double SMOOTHING = 0.5;
+
+    private final int minItems;
+    private final int maxItems;
+    private final long targetPageTime;
+    private volatile int itemsPerPage;
+
+    /** the number of items per square degree, observed at the given zoom level */
+    private final Map<Integer, Double> densities = new ConcurrentHashMap<>();
+
+
+    /**
+     * Builds a new object. The initial page size is the maximum page size.
+     *
+     * @param minItems the minimum number of items per page
+     * @param maxItems the maximum number of items per page
+     * @param targetPageTime the desired time, in milliseconds, of reading a full page
+     */
+    AdaptivePaging(final int minItems, final int maxItems, final long targetPageTime) {
+        this.maxItems = Math.max(1, maxItems);
+        this.minItems = Math.max(1, Math.min(minItems, this.maxItems));
+        this.targetPageTime = targetPageTime;
+        this.itemsPerPage = this.maxItems;
+    }
+
+
+    /**
+     * Returns the number of items to request per page.
+     *
+     * @return an integer
+     */
+    int getItemsPerPage() {
+        return itemsPerPage;
+    }
+
+    /**
+     * Estimates the number of pages of the given area, based on the item density previously observed at the given zoom
+     * level. The method returns 1 if there is no observation for the zoom level.
+     *
+     * @param area a {@code BoundingBox} the listed area
+     * @param zoom the zoom level of the list request
+     * @param pageItems the number of items per page
+     * @return the estimated number of pages
+     */
+    int estimatePages(final BoundingBox area, final int zoom, final int pageItems) {
+        final Double density = densities.get(zoom);
+        int pages = 1;
+        if (density != null) {
+            pages = Math.max(1, (int) Math.ceil(density * area(area) / pageItems));
+        }
+        return pages;
+    }
+
+    /**
+     * Records the total number of items found in the given area.
+     *
+     * @param area a {@code BoundingBox} the listed area
+     * @param zoom the zoom level of the list request
+     * @param totalItems the total number of items reported by the service
+     */
+    void recordTotal(final BoundingBox area, final int zoom, final int totalItems) {
+        final double size = area(area);
+        if (size > 0) {
+            densities.put(zoom, totalItems / size);
+        }
+    }
+
+    /**
+     * Records the reading time of a page. Only full pages are considered, since the reading time of a partial page is
+     * dominated by the request latency.
+     *
+     * @param pageItems the number of requested items
+     * @param items the number of received items
+     * @param time the reading time in milliseconds
+     */
+    synchronized void recordPage(final int pageItems, final int items, final long time) {
+        if (items > 0 && items >= pageItems) {
+            final double desired = (double) items * targetPageTime / Math.max(1, time);
+            final double smoothed = itemsPerPage + SMOOTHING * (desired - itemsPerPage);
+            itemsPerPage = (int) Math.max(minItems, Math.min(maxItems, Math.round(smoothed)));
+        }
+    }
+
+    private static double area(final BoundingBox area) {
+        return Math.abs(area.getNorth() - area.getSouth()) * Math.abs(area.getEast() - area.getWest());
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.service;
+
+
+/**
+ * The result of a conditional request. If the server reported that the cached content is still valid, the response
+ * has no content.
+ *
+ * @author beataj
+ * @version $Revision$
+ * @param <T> the type of the content
+ */
+public final class ConditionalResponse<T> {
+
+    private final T content;
+    private final boolean notModified;
+    private final String entityTag;
+    private final String lastModified;
+
+
+    /**
+     * Builds a new response with the given arguments.
+     *
+     * @param content the received content, null if the content was not modified
+     * @param notModified true if the server reported that the cached content is still valid
+     * @param entityTag the value of the ETag response header
+     * @param lastModified the value of the Last-Modified response header
+     */
+    ConditionalResponse(final T content, final boolean notModified, final String entityTag,
+            final String lastModified) {
+        this.content = content;
+        this.notModified = notModified;
+        this.entityTag = entityTag;
+        this.lastModified = lastModified;
+    }
+
+
+    public T getContent() {
+        return content;
+    }
+
+    public boolean isNotModified() {
+        return notModified;
+    }
+
+    public String getEntityTag() {
+        return entityTag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+}
@@ -86,11 +86,7 @@ final class HttpContentBuilder {
             content.put(USER_TYPE, USER_TYPE_OSM);
             content.put(MY_TRACKS, MY_TRACKS_VAL);
         }
-        if (paging == null) {
-            addPaging(Paging.TRACKS_DEFAULT);
-        } else {
-            addPaging(paging);
-        }
+        addPaging(paging);
     }
 
     HttpContentBuilder(final Long id) {
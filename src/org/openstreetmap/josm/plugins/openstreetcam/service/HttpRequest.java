@@ -0,0 +1,75 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.service;
+
+import java.util.Collections;
+import java.util.Map;
+
+
+/**
+ * Defines an HTTP request sent through a {@code HttpTransport}.
+ *
+ * @author beataj
+ * @version $Revision$
+ */
+public final class HttpRequest {
+
+    private final String method;
+    private final String url;
+    private final Map<String, String> headers;
+    private final byte[] body;
+    private final int connectTimeout;
+    private final int readTimeout;
+
+
+    /**
+     * Builds a new request with the given arguments.
+     *
+     * @param method the HTTP method
+     * @param url the URL of the request
+     * @param headers the request headers
+     * @param body the request body, null if the request has no body
+     * @param connectTimeout the connect timeout in milliseconds
+     * @param readTimeout the read timeout in milliseconds, 0 means infinite timeout
+     */
+    public HttpRequest(final String method, final String url, final Map<String, String> headers, final byte[] body,
+            final int connectTimeout, final int readTimeout) {
+        this.method = method;
+        this.url = url;
+        this.headers = headers != null ? Collections.unmodifiableMap(headers) : Collections.emptyMap();
+        this.body = body;
+        this.connectTimeout = connectTimeout;
+        this.readTimeout = readTimeout;
+    }
+
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.service;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+
+/**
+ * Defines an HTTP response received through a {@code HttpTransport}. The body is returned as it was received, it is
+ * not decoded.
+ *
+ * @author beataj
+ * @version $Revision$
+ */
+public final class HttpResponse implements Closeable {
+
+    private final int code;
+    private final Map<String, String> headers;
+    private final InputStream body;
+
+
+    /**
+     * Builds a new response with the given arguments.
+     *
+     * @param code the HTTP status code
+     * @param headers the response headers, the header names are case insensitive
+     * @param body the response body, null if the response has no body
+     */
+    public HttpResponse(final int code, final Map<String, String> headers, final InputStream body) {
+        this.code = code;
+        final Map<String, String> map = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (headers != null) {
+            map.putAll(headers);
+        }
+        this.headers = Collections.unmodifiableMap(map);
+        this.body = body;
+    }
+
+
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * Returns the value of the given header.
+     *
+     * @param name the name of the header
+     * @return the value of the header, or null if the response does not have such a header
+     */
+    public String getHeader(final String name) {
+        return headers.get(name);
+    }
+
+    public InputStream getBody() {
+        return body;
+    }
+
+    /**
+     * Closes the response body. The transport might reuse the connection after the body was closed.
+     *
+     * @throws IOException if the body could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (body != null) {
+            body.close();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.service;
+
+import java.io.IOException;
+
+
+/**
+ * Sends HTTP requests on behalf of the service client. The default implementation is the
+ * {@code UrlConnectionTransport}; a different transport (for instance a local stub) can be given to the
+ * {@code Service} constructor.
+ *
+ * @author beataj
+ * @version $Revision$
+ */
+@FunctionalInterface
+public interface HttpTransport {
+
+    /**
+     * Sends the given request. The caller should close the returned response, in this way the underlying connection
+     * can be reused by the next requests.
+     *
+     * @param request a {@code HttpRequest} to send
+     * @return a {@code HttpResponse} whose body is not read yet
+     * @throws IOException if the request could not be sent or the response could not be received
+     */
+    HttpResponse send(HttpRequest request) throws IOException;
+}
@@ -15,25 +15,27 @@
  */
 package org.openstreetmap.josm.plugins.openstreetcam.service;
 
-import java.lang.reflect.Type;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 import org.openstreetmap.josm.plugins.openstreetcam.argument.Circle;
 import org.openstreetmap.josm.plugins.openstreetcam.argument.Paging;
 import org.openstreetmap.josm.plugins.openstreetcam.argument.UserAgent;
 import org.openstreetmap.josm.plugins.openstreetcam.entity.Photo;
 import org.openstreetmap.josm.plugins.openstreetcam.entity.Segment;
 import org.openstreetmap.josm.plugins.openstreetcam.entity.Sequence;
+import org.openstreetmap.josm.plugins.openstreetcam.service.adapter.ListResponseReader;
 import org.openstreetmap.josm.plugins.openstreetcam.service.adapter.PhotoTypeAdapter;
 import org.openstreetmap.josm.plugins.openstreetcam.service.adapter.SegmentTypeAdapter;
 import org.openstreetmap.josm.plugins.openstreetcam.service.entity.ListResponse;
@@ -42,12 +44,8 @@ import org.openstreetmap.josm.plugins.openstreetcam.service.entity.SequencePhoto
 import org.openstreetmap.josm.plugins.openstreetcam.util.cnf.Config;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonSyntaxException;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonParseException;
 import com.telenav.josm.common.argument.BoundingBox;
-import com.telenav.josm.common.http.ContentType;
-import com.telenav.josm.common.http.HttpConnector;
-import com.telenav.josm.common.http.HttpConnectorException;
 
 
 /**
@@ -58,19 +56,46 @@ import com.telenav.josm.common.http.HttpConnectorException;
  */
 public class Service {
 
-    private static final int SECOND_PAGE = 2;
     private final Gson gson;
-    private final Map<String, String> headers;
+    private final ServiceClient client;
+    private final ServiceClient.Timeouts listTimeouts;
+    private final ServiceClient.Timeouts photoTimeouts;
+    private final ListResponseReader<Photo> photoResponseReader;
+    private final ListResponseReader<Segment> segmentResponseReader;
+    private final AdaptivePaging trackPaging;
+    private final SingleFlight<String, ConditionalResponse<Sequence>> sequenceCalls = new SingleFlight<>();
+    private final SingleFlight<String, byte[]> photoCalls = new SingleFlight<>();
 
 
+    /**
+     * Builds a new service that sends the requests through {@code HttpURLConnection}s.
+     */
     public Service() {
-        headers = new HashMap<>();
+        this(new UrlConnectionTransport());
+    }
+
+    /**
+     * Builds a new service that sends the requests through the given transport.
+     *
+     * @param transport a {@code HttpTransport}
+     */
+    public Service(final HttpTransport transport) {
+        final Map<String, String> headers = new HashMap<>();
         headers.put(RequestConstants.USER_AGENT, new UserAgent().toString());
+        client = new ServiceClient(transport, headers);
+        listTimeouts = new ServiceClient.Timeouts(Config.getInstance().getServiceConnectTimeout(),
+                Config.getInstance().getServiceReadTimeout());
+        photoTimeouts = new ServiceClient.Timeouts(Config.getInstance().getPhotoConnectTimeout(),
+                Config.getInstance().getPhotoReadTimeout());
         final GsonBuilder builder = new GsonBuilder();
         builder.serializeNulls();
         builder.registerTypeAdapter(Photo.class, new PhotoTypeAdapter());
         builder.registerTypeAdapter(Segment.class, new SegmentTypeAdapter());
         gson = builder.create();
+        photoResponseReader = new ListResponseReader<>(gson, Photo.class);
+        segmentResponseReader = new ListResponseReader<>(gson, Segment.class);
+        trackPaging = new AdaptivePaging(Config.getInstance().getTracksMinItems(),
+                Config.getInstance().getTracksMaxItems(), Config.getInstance().getTracksPageTime());
     }
 
 
@@ -89,65 +114,67 @@ public class Service {
             throws ServiceException {
         final Map<String, String> arguments =
                 new HttpContentBuilder(circle, date, osmUserId, Paging.NEARBY_PHOTOS_DEAFULT).getContent();
-        final String response;
-        try {
-            final HttpConnector connector = new HttpConnector(
-                    Config.getInstance().getServiceUrl() + RequestConstants.LIST_NEARBY_PHOTOS, headers);
-            response = connector.post(arguments, ContentType.X_WWW_FORM_URLENCODED);
-        } catch (final HttpConnectorException e) {
-            throw new ServiceException(e);
-        }
+        final List<Photo> photos = new ArrayList<>();
         final ListResponse<Photo> listPhotoResponse =
-                parseResponse(response, new TypeToken<ListResponse<Photo>>() {}.getType());
+                post(Config.getInstance().getServiceUrl() + RequestConstants.LIST_NEARBY_PHOTOS, arguments,
+                        reader -> photoResponseReader.read(reader, photos::add));
         verifyResponseStatus(listPhotoResponse);
-        return listPhotoResponse != null ? listPhotoResponse.getCurrentPageItems() : new ArrayList<>();
-
+        return photos;
     }
 
     /**
-     * Retrieves the sequence associated with the given identifier.
+     * Retrieves the sequence associated with the given identifier, if it was modified since it was cached. The
+     * validators of the cached sequence are sent with the request; if the server reports that the sequence was not
+     * modified, the returned response has no content. Concurrent identical calls share the same request.
      *
      * @param id a sequence identifier
-     * @return a {@code Sequence} that contains all the photos that belongs to the sequence
+     * @param entityTag the entity tag of the cached sequence, null if there is no such validator
+     * @param lastModified the last modification date of the cached sequence, null if there is no such validator
+     * @return a {@code ConditionalResponse} containing the sequence and its validators
      * @throws ServiceException if the operation fails
      */
-    public Sequence retrieveSequence(final Long id) throws ServiceException {
+    public ConditionalResponse<Sequence> retrieveSequence(final Long id, final String entityTag,
+            final String lastModified) throws ServiceException {
+        return sequenceCalls.execute(id + " " + entityTag + " " + lastModified,
+                () -> downloadSequence(id, entityTag, lastModified));
+    }
+
+    private ConditionalResponse<Sequence> downloadSequence(final Long id, final String entityTag,
+            final String lastModified) throws ServiceException {
         final Map<String, String> arguments = new HttpContentBuilder(id).getContent();
-        final String response;
+        final String url = Config.getInstance().getServiceUrl() + RequestConstants.SEQUENCE_PHOTO_LIST;
+        final ConditionalResponse<SequencePhotoListResponse> response;
         try {
-            final HttpConnector connector = new HttpConnector(
-                    Config.getInstance().getServiceUrl() + RequestConstants.SEQUENCE_PHOTO_LIST, headers);
-            response = connector.post(arguments, ContentType.X_WWW_FORM_URLENCODED);
-        } catch (final HttpConnectorException e) {
+            response = ServiceExecutor.getInstance().execute(url, () -> client.post(url, arguments, listTimeouts,
+                    entityTag, lastModified, reader -> gson.fromJson(reader, SequencePhotoListResponse.class)));
+        } catch (final JsonParseException | IllegalStateException e) {
             throw new ServiceException(e);
         }
-        final SequencePhotoListResponse detailsResponse = parseResponse(response, SequencePhotoListResponse.class);
-        verifyResponseStatus(detailsResponse);
-        return detailsResponse != null ? detailsResponse.getOsv() : null;
+        verifyResponseStatus(response.getContent());
+        final Sequence sequence = response.getContent() != null ? response.getContent().getOsv() : null;
+        return new ConditionalResponse<>(sequence, response.isNotModified(), response.getEntityTag(),
+                response.getLastModified());
     }
 
     /**
-     * Retrieves the photo with the given name.
+     * Retrieves the photo with the given name. Concurrent calls for the same photo share the same request and the same
+     * result, the returned array should not be modified.
      *
      * @param photoName represents the full name (contains also the path) of an image
      * @return the photo in byte format
      * @throws ServiceException if the operation failed
      */
     public byte[] retrievePhoto(final String photoName) throws ServiceException {
-        final StringBuilder url = new StringBuilder(Config.getInstance().getServiceBaseUrl());
-        url.append(photoName);
-        byte[] image;
-        try {
-            final HttpConnector connector = new HttpConnector(url.toString(), headers);
-            image = connector.getBytes();
-        } catch (final HttpConnectorException e) {
-            throw new ServiceException(e);
-        }
-        return image;
+        final String url = Config.getInstance().getServiceBaseUrl() + photoName;
+        return photoCalls.execute(url,
+                () -> ServiceExecutor.getInstance().execute(url, () -> client.getBytes(url, photoTimeouts)));
     }
 
     /**
-     * Returns a list of segments that has OpenStreetCam coverage from the given area.
+     * Returns a list of segments that has OpenStreetCam coverage from the given area. The pages are read in parallel:
+     * the number of pages is estimated from the previously observed track density, and the estimated pages are
+     * requested together with the first page. The remaining pages are requested as soon as the first page reports the
+     * total number of segments. At most {@code tracks.maxParallelPages} pages are requested in the same time.
      *
      * @param area a {@code BoundingBox} represents the current area
      * @param osmUserId a {@code Long} specifies the user's OSM identifier; if not null return only the photos that were
@@ -158,57 +185,85 @@ public class Service {
      */
     public List<Segment> listMatchedTracks(final BoundingBox area, final Long osmUserId, final int zoom)
             throws ServiceException {
-        final ListResponse<Segment> listSegmentResponse =
-                listMatchedTacks(area, osmUserId, zoom, Paging.TRACKS_DEFAULT);
-        final Set<Segment> segments = new HashSet<>();
-        if (listSegmentResponse != null) {
-            segments.addAll(listSegmentResponse.getCurrentPageItems());
-            if (listSegmentResponse.getTotalItems() > Config.getInstance().getTracksMaxItems()) {
-                final int pages = listSegmentResponse.getTotalItems() > Config.getInstance().getTracksMaxItems()
-                        ? (listSegmentResponse.getTotalItems() / Config.getInstance().getTracksMaxItems()) + 1
-                                : SECOND_PAGE;
-                final ExecutorService executor = Executors.newFixedThreadPool(pages);
-                final List<Future<ListResponse<Segment>>> futures = new ArrayList<>();
-                for (int i = SECOND_PAGE; i <= pages; i++) {
-                    final Paging paging = new Paging(i, Config.getInstance().getTracksMaxItems());
-                    final Callable<ListResponse<Segment>> callable =
-                            () -> listMatchedTacks(area, osmUserId, zoom, paging);
-                            futures.add(executor.submit(callable));
+        // each page adds its segments as soon as they are parsed
+        final Set<Segment> segments = ConcurrentHashMap.newKeySet();
+        final int pageItems = trackPaging.getItemsPerPage();
+        final int maxParallelPages = Math.max(1, Config.getInstance().getTracksMaxParallelPages());
+        final Deque<Future<ListResponse<Segment>>> futures = new ArrayDeque<>();
+        int pages = Math.min(trackPaging.estimatePages(area, zoom, pageItems), maxParallelPages);
+        int submittedPages = 0;
+        try {
+            while (submittedPages < pages) {
+                futures.add(submitTracksPage(area, osmUserId, zoom, new Paging(++submittedPages, pageItems),
+                        segments));
+            }
+            final ListResponse<Segment> firstResponse = readResult(futures.poll());
+            pages = 1;
+            if (firstResponse != null) {
+                trackPaging.recordTotal(area, zoom, firstResponse.getTotalItems());
+                pages = Math.max(1, (firstResponse.getTotalItems() + pageItems - 1) / pageItems);
+            }
+
+            // drop the speculative pages that are out of range
+            while (submittedPages > pages && !futures.isEmpty()) {
+                ServiceExecutor.getInstance().cancel(Collections.singletonList(futures.pollLast()));
+                submittedPages--;
+            }
+            while (submittedPages < pages || !futures.isEmpty()) {
+                while (submittedPages < pages && futures.size() < maxParallelPages) {
+                    futures.add(submitTracksPage(area, osmUserId, zoom, new Paging(++submittedPages, pageItems),
+                            segments));
                 }
-                segments.addAll(readResult(futures));
-                executor.shutdown();
+                readResult(futures.poll());
             }
+        } catch (final ServiceException e) {
+            ServiceExecutor.getInstance().cancel(futures);
+            throw e;
         }
         return new ArrayList<>(segments);
     }
 
+    private Future<ListResponse<Segment>> submitTracksPage(final BoundingBox area, final Long osmUserId,
+            final int zoom, final Paging paging, final Set<Segment> segments) {
+        final Callable<ListResponse<Segment>> callable = () -> {
+            final long start = System.nanoTime();
+            final ListResponse<Segment> response = listMatchedTacks(area, osmUserId, zoom, paging, segments::add);
+            if (response != null) {
+                final int items = Math.min(paging.getItemsPerPage(),
+                        response.getTotalItems() - (paging.getPage() - 1) * paging.getItemsPerPage());
+                trackPaging.recordPage(paging.getItemsPerPage(), items,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            return response;
+        };
+        return ServiceExecutor.getInstance().submit(callable);
+    }
+
+    private <T> T readResult(final Future<T> future) throws ServiceException {
+        return ServiceExecutor.getInstance().readResults(Collections.singletonList(future)).get(0);
+    }
+
     private ListResponse<Segment> listMatchedTacks(final BoundingBox area, final Long osmUserId, final int zoom,
-            final Paging paging) throws ServiceException {
+            final Paging paging, final Consumer<Segment> consumer) throws ServiceException {
         final Map<String, String> arguments = new HttpContentBuilder(area, osmUserId, zoom, paging).getContent();
-        final String response;
-        try {
-            final HttpConnector connector = new HttpConnector(
-                    Config.getInstance().getServiceBaseUrl() + RequestConstants.LIST_MATCHED_TRACKS, headers);
-            response = connector.post(arguments, ContentType.X_WWW_FORM_URLENCODED);
-        } catch (final HttpConnectorException e) {
-            throw new ServiceException(e);
-        }
         final ListResponse<Segment> listSegmentResponse =
-                parseResponse(response, new TypeToken<ListResponse<Segment>>() {}.getType());
+                post(Config.getInstance().getServiceBaseUrl() + RequestConstants.LIST_MATCHED_TRACKS, arguments,
+                        reader -> segmentResponseReader.read(reader, consumer));
         verifyResponseStatus(listSegmentResponse);
         return listSegmentResponse;
     }
 
-    private Set<Segment> readResult(final List<Future<ListResponse<Segment>>> futures) throws ServiceException {
-        final Set<Segment> segments = new HashSet<>();
-        for (final Future<ListResponse<Segment>> future : futures) {
-            try {
-                segments.addAll(future.get().getCurrentPageItems());
-            } catch (InterruptedException | ExecutionException e) {
-                throw new ServiceException(e);
-            }
+    /**
+     * Sends a POST request and parses the response directly from the connection's stream.
+     */
+    private <T> T post(final String url, final Map<String, String> arguments,
+            final ServiceClient.ResponseReader<T> responseReader) throws ServiceException {
+        try {
+            return ServiceExecutor.getInstance().execute(url,
+                    () -> client.post(url, arguments, listTimeouts, responseReader));
+        } catch (final JsonParseException | IllegalStateException e) {
+            throw new ServiceException(e);
         }
-        return segments;
     }
 
     private void verifyResponseStatus(final Response response) throws ServiceException {
@@ -216,16 +271,4 @@ public class Service {
             throw new ServiceException(response.getStatus().getApiMessage());
         }
     }
-
-    private <T> T parseResponse(final String response, final Type responseType) throws ServiceException {
-        T root = null;
-        if (response != null) {
-            try {
-                root = gson.fromJson(response, responseType);
-            } catch (final JsonSyntaxException e) {
-                throw new ServiceException(e);
-            }
-        }
-        return root;
-    }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,226 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.service;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+import com.google.gson.stream.JsonReader;
+import com.telenav.josm.common.http.HttpConnectorException;
+import com.telenav.josm.common.http.HttpUtil;
+
+
+/**
+ * HTTP client used by the {@code Service}. The client asks for compressed responses and decodes them, JSON responses
+ * are read directly from the response stream. The requests are sent through a pluggable {@code HttpTransport}; the
+ * response bodies are always closed, in this way the transport can keep the connections alive.
+ *
+ * @author beataj
+ * @version $Revision$
+ */
+final class ServiceClient {
+
+    private static final String ACCEPT_ENCODING = "Accept-Encoding";
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+    private static final String ETAG = "ETag";
+    private static final String LAST_MODIFIED = "Last-Modified";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    private static final String SUPPORTED_ENCODINGS = "gzip, deflate";
+    private static final String GZIP = "gzip";
+    private static final String DEFLATE = "deflate";
+    private static final String FORM_URLENCODED = "application/x-www-form-urlencoded";
+    private static final String GET = "GET";
+    private static final String POST = "POST";
+    private static final int BUFFER_SIZE = 8192;
+
+    private final HttpTransport transport;
+    private final Map<String, String> headers;
+
+
+    /**
+     * Builds a new client.
+     *
+     * @param transport the {@code HttpTransport} used for sending the requests
+     * @param headers the headers sent with every request
+     */
+    ServiceClient(final HttpTransport transport, final Map<String, String> headers) {
+        this.transport = transport;
+        final Map<String, String> map = new HashMap<>(headers);
+        map.put(ACCEPT_ENCODING, SUPPORTED_ENCODINGS);
+        this.headers = Collections.unmodifiableMap(map);
+    }
+
+
+    /**
+     * Sends a POST request with the given form arguments, and reads the response with the given reader. The error
+     * responses are also passed to the reader, since they contain the status of the request.
+     *
+     * @param url the URL of the request
+     * @param arguments the request arguments
+     * @param timeouts the {@code Timeouts} of the endpoint
+     * @param responseReader reads the response from a {@code JsonReader}
+     * @return the read response, or null if the response has no content
+     * @throws HttpConnectorException if the request or the read operation failed
+     */
+    <T> T post(final String url, final Map<String, String> arguments, final Timeouts timeouts,
+            final ResponseReader<T> responseReader) throws HttpConnectorException {
+        return post(url, arguments, timeouts, null, null, responseReader).getContent();
+    }
+
+    /**
+     * Sends a conditional POST request. The validators of the cached content are sent in the If-None-Match and
+     * If-Modified-Since headers; if the server answers with 304 (Not Modified) or, since the request is a POST, with
+     * 412 (Precondition Failed) the response has no content, otherwise the response is read with the given reader. If
+     * validators are sent, an error response code fails the request, in this way the caller can use the cached
+     * content.
+     *
+     * @param url the URL of the request
+     * @param arguments the request arguments
+     * @param timeouts the {@code Timeouts} of the endpoint
+     * @param entityTag the entity tag of the cached content, null if there is no such validator
+     * @param lastModified the last modification date of the cached content, null if there is no such validator
+     * @param responseReader reads the response from a {@code JsonReader}
+     * @return a {@code ConditionalResponse} holding the read content and the validators of the response
+     * @throws HttpConnectorException if the request or the read operation failed, or if validators were sent and the
+     * server returned an error code
+     */
+    <T> ConditionalResponse<T> post(final String url, final Map<String, String> arguments, final Timeouts timeouts,
+            final String entityTag, final String lastModified, final ResponseReader<T> responseReader)
+            throws HttpConnectorException {
+        final Map<String, String> requestHeaders = new HashMap<>(headers);
+        requestHeaders.put(CONTENT_TYPE, FORM_URLENCODED);
+        if (entityTag != null) {
+            requestHeaders.put(IF_NONE_MATCH, entityTag);
+        }
+        if (lastModified != null) {
+            requestHeaders.put(IF_MODIFIED_SINCE, lastModified);
+        }
+        final byte[] body =
+                arguments != null ? HttpUtil.utf8Encode(arguments).getBytes(StandardCharsets.UTF_8) : null;
+        ConditionalResponse<T> result;
+        try (HttpResponse response = transport.send(new HttpRequest(POST, url, requestHeaders, body,
+                timeouts.getConnectTimeout(), timeouts.getReadTimeout()))) {
+            final boolean conditional = entityTag != null || lastModified != null;
+            if (response.getCode() == HttpURLConnection.HTTP_NOT_MODIFIED
+                    || (conditional && response.getCode() == HttpURLConnection.HTTP_PRECON_FAILED)) {
+                result = new ConditionalResponse<>(null, true, entityTag, lastModified);
+            } else if (conditional && (response.getCode() < HttpURLConnection.HTTP_OK
+                    || response.getCode() >= HttpURLConnection.HTTP_MULT_CHOICE)) {
+                throw new HttpConnectorException("Could not read:" + url + ", responseCode:" + response.getCode());
+            } else {
+                T content = null;
+                if (response.getBody() != null) {
+                    try (JsonReader reader = new JsonReader(new InputStreamReader(decode(response),
+                            StandardCharsets.UTF_8))) {
+                        content = responseReader.read(reader);
+                    }
+                }
+                result = new ConditionalResponse<>(content, false, response.getHeader(ETAG),
+                        response.getHeader(LAST_MODIFIED));
+            }
+        } catch (final IOException e) {
+            throw new HttpConnectorException("Could not read response of:" + url, e);
+        }
+        return result;
+    }
+
+    /**
+     * Sends a GET request and returns the response body.
+     *
+     * @param url the URL of the request
+     * @param timeouts the {@code Timeouts} of the endpoint
+     * @return the response body, or null if the response has no content
+     * @throws HttpConnectorException if the request failed or the server returned an error code
+     */
+    byte[] getBytes(final String url, final Timeouts timeouts) throws HttpConnectorException {
+        byte[] result = null;
+        try (HttpResponse response = transport.send(
+                new HttpRequest(GET, url, headers, null, timeouts.getConnectTimeout(), timeouts.getReadTimeout()))) {
+            if (response.getCode() >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                throw new HttpConnectorException("Could not read:" + url + ", responseCode:" + response.getCode());
+            }
+            if (response.getBody() != null) {
+                result = readBytes(decode(response));
+            }
+        } catch (final IOException e) {
+            throw new HttpConnectorException("Could not read:" + url, e);
+        }
+        return result;
+    }
+
+    private static InputStream decode(final HttpResponse response) throws IOException {
+        final InputStream body = new BufferedInputStream(response.getBody(), BUFFER_SIZE);
+        final String encoding = response.getHeader(CONTENT_ENCODING);
+        final InputStream result;
+        if (GZIP.equalsIgnoreCase(encoding)) {
+            result = new GZIPInputStream(body, BUFFER_SIZE);
+        } else if (DEFLATE.equalsIgnoreCase(encoding)) {
+            result = new InflaterInputStream(body);
+        } else {
+            result = body;
+        }
+        return result;
+    }
+
+    private static byte[] readBytes(final InputStream in) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int count;
+        while ((count = in.read(buffer)) != -1) {
+            out.write(buffer, 0, count);
+        }
+        return out.toByteArray();
+    }
+
+
+    /**
+     * Defines the connect and read timeouts, in milliseconds, of a service endpoint.
+     */
+    static final class Timeouts {
+
+        private final int connectTimeout;
+        private final int readTimeout;
+
+        Timeouts(final int connectTimeout, final int readTimeout) {
+            this.connectTimeout = connectTimeout;
+            this.readTimeout = readTimeout;
+        }
+
+        int getConnectTimeout() {
+            return connectTimeout;
+        }
+
+        int getReadTimeout() {
+            return readTimeout;
+        }
+    }
+
+
+    /**
+     * Reads a response from a JSON stream.
+     *
+     * @param <T> the type of the response
+     */
+    @FunctionalInterface
+    interface ResponseReader<T> {
+
+        T read(JsonReader reader) throws IOException;
+    }
+}
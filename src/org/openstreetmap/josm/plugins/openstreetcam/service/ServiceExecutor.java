@@ -0,0 +1,206 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.service;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openstreetmap.josm.plugins.openstreetcam.util.cnf.Config;
+import com.telenav.josm.common.http.HttpConnectorException;
+
+
+/**
+ * Bounded executor shared by the service layer. The number of worker threads and the number of concurrent requests
+ * sent to the same host are limited by the configuration. Waiting for a submitted task that was not started yet runs
+ * the task in the waiting thread, in this way nested submissions can not block each other.
+ *
+ * @author beataj
+ * @version $Revision$
+ */
+public final class ServiceExecutor {
+
+    private static final String THREAD_NAME = "openstreetcam-service-";
+    private static final long KEEP_ALIVE_SECONDS = 60;
+
+    private static ServiceExecutor instance;
+
+    private final ThreadPoolExecutor executor;
+    private final int maxRequestsPerHost;
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+
+    private ServiceExecutor() {
+        final int maxThreads = Math.max(1, Config.getInstance().getServiceMaxThreads());
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ThreadFactory threadFactory = runnable -> {
+            final Thread thread = new Thread(runnable, THREAD_NAME + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        executor = new ThreadPoolExecutor(maxThreads, maxThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), threadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        maxRequestsPerHost = Math.max(1, Config.getInstance().getServiceMaxRequestsPerHost());
+    }
+
+
+    /**
+     * Returns the executor instance. A new instance is created if the previous one was shut down.
+     *
+     * @return a {@code ServiceExecutor}
+     */
+    public static synchronized ServiceExecutor getInstance() {
+        if (instance == null || instance.executor.isShutdown()) {
+            instance = new ServiceExecutor();
+        }
+        return instance;
+    }
+
+
+    /**
+     * Submits the given task for execution.
+     *
+     * @param task a {@code Callable} to execute
+     * @return a {@code Future} representing the result of the task
+     */
+    public <T> Future<T> submit(final Callable<T> task) {
+        final RunnableFuture<T> future = new FutureTask<>(task);
+        executor.execute(future);
+        return future;
+    }
+
+    /**
+     * Waits for the given tasks and returns their results in the order of the futures. Tasks that were not started yet
+     * are executed in the current thread. If a task fails or the current thread is interrupted, the remaining tasks are
+     * cancelled.
+     *
+     * @param futures a list of {@code Future}s obtained from the {@code submit} method
+     * @return a list of results
+     * @throws ServiceException if any of the tasks failed or the current thread was interrupted
+     */
+    public <T> List<T> readResults(final List<Future<T>> futures) throws ServiceException {
+        final List<T> result = new ArrayList<>(futures.size());
+        try {
+            for (final Future<T> future : futures) {
+                runIfNotStarted(future);
+                result.add(future.get());
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(futures);
+            throw new ServiceException(e);
+        } catch (ExecutionException | CancellationException e) {
+            cancel(futures);
+            throw new ServiceException(e);
+        }
+        return result;
+    }
+
+    /**
+     * Runs the given task in the current thread if it was not started yet. The task is removed from the executor's
+     * queue, in this way the caller waiting for the task does not wait for the tasks queued before it.
+     *
+     * @param future a {@code Future} obtained from the {@code submit} method
+     */
+    public void runIfNotStarted(final Future<?> future) {
+        if (future instanceof RunnableFuture && !future.isDone() && executor.remove((Runnable) future)) {
+            ((RunnableFuture<?>) future).run();
+        }
+    }
+
+    /**
+     * Cancels the given tasks. Tasks that were not started yet are removed from the executor's queue.
+     *
+     * @param futures a collection of {@code Future}s obtained from the {@code submit} method
+     */
+    public void cancel(final Collection<? extends Future<?>> futures) {
+        for (final Future<?> future : futures) {
+            if (future.cancel(true) && future instanceof Runnable) {
+                executor.remove((Runnable) future);
+            }
+        }
+    }
+
+    /**
+     * Executes the given HTTP request in the current thread. At most {@code maxRequestsPerHost} requests are executed
+     * in the same time for the host of the given URL, the waiting requests are served in FIFO order.
+     *
+     * @param url the URL of the request
+     * @param request the {@code Request} to execute
+     * @return the result of the request
+     * @throws ServiceException if the request failed or the current thread was interrupted
+     */
+    public <T> T execute(final String url, final Request<T> request) throws ServiceException {
+        final Semaphore permits =
+                hostPermits.computeIfAbsent(host(url), key -> new Semaphore(maxRequestsPerHost, true));
+        try {
+            permits.acquire();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException(e);
+        }
+        try {
+            return request.execute();
+        } catch (final HttpConnectorException e) {
+            throw new ServiceException(e);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Shuts down the executor. Already submitted tasks are still executed, but new tasks are not accepted.
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static String host(final String url) {
+        String host = null;
+        try {
+            host = URI.create(url).getHost();
+        } catch (final IllegalArgumentException e) {
+            // ignore, the whole URL is used as key
+        }
+        return host != null ? host : url;
+    }
+
+
+    /**
+     * Represents an HTTP request.
+     *
+     * @param <T> the type of the request's result
+     */
+    @FunctionalInterface
+    public interface Request<T> {
+
+        /**
+         * Executes the request.
+         *
+         * @return the result of the request
+         * @throws HttpConnectorException if the request failed
+         */
+        T execute() throws HttpConnectorException;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+
+/**
+ * Coalesces concurrent identical calls: while a call is in flight, the callers asking for the same key wait for the
+ * result of that call instead of starting a new one. The calls are submitted to the {@code ServiceExecutor}; if the
+ * call was not started yet it is executed by the first caller, in this way the caller does not wait for the tasks
+ * queued before the call. Since the first caller might execute the call itself, interrupting it might make the call
+ * fail for all the waiting callers; a caller which is interrupted while waiting for a call executed by another thread
+ * stops waiting without cancelling the call.
+ *
+ * @author beataj
+ * @version $Revision$
+ * @param <K> the type of the keys identifying the calls
+ * @param <V> the type of the call results
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+
+
+    /**
+     * Returns the result of the call identified by the given key. If an identical call is in flight its result is
+     * returned, otherwise the given call is executed.
+     *
+     * @param key identifies the call
+     * @param call a {@code Call} to execute if there is no identical call in flight
+     * @return the result of the call
+     * @throws ServiceException if the call failed or the current thread was interrupted while waiting
+     */
+    public V execute(final K key, final Call<V> call) throws ServiceException {
+        final CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> current = calls.putIfAbsent(key, future);
+        if (current == null) {
+            current = future;
+            final ServiceExecutor executor = ServiceExecutor.getInstance();
+            try {
+                executor.runIfNotStarted(executor.submit(() -> {
+                    try {
+                        future.complete(call.execute());
+                    } catch (final ServiceException | RuntimeException | Error e) {
+                        future.completeExceptionally(e);
+                    } finally {
+                        calls.remove(key, future);
+                    }
+                    return null;
+                }));
+            } catch (final RuntimeException e) {
+                // for instance the executor was shut down; the callers waiting for this call should not block
+                future.completeExceptionally(e);
+                calls.remove(key, future);
+            }
+        }
+        try {
+            return current.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException(e);
+        } catch (final ExecutionException e) {
+            throw e.getCause() instanceof ServiceException ? (ServiceException) e.getCause()
+                    : new ServiceException(e.getCause());
+        }
+    }
+
+
+    /**
+     * Represents a call that can be shared by several callers.
+     *
+     * @param <V> the type of the call's result
+     */
+    @FunctionalInterface
+    public interface Call<V> {
+
+        /**
+         * Executes the call.
+         *
+         * @return the result of the call
+         * @throws ServiceException if the call failed
+         */
+        V execute() throws ServiceException;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Sends the requests through {@code HttpURLConnection}s. The connections are never disconnected explicitly: once the
+ * response body is read and closed, the JDK keeps the connection alive and reuses it for the next request sent to the
+ * same host.
+ *
+ * @author beataj
+ * @version $Revision$
+ */
+public final class UrlConnectionTransport implements HttpTransport {
+
+    @Override
+    public HttpResponse send(final HttpRequest request) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(request.getUrl()).openConnection();
+        HttpResponse response = null;
+        try {
+            connection.setInstanceFollowRedirects(true);
+            connection.setConnectTimeout(request.getConnectTimeout());
+            connection.setReadTimeout(request.getReadTimeout());
+            connection.setRequestMethod(request.getMethod());
+            for (final Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+            if (request.getBody() != null) {
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(request.getBody().length);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(request.getBody());
+                }
+            }
+            final int code = connection.getResponseCode();
+            final InputStream body;
+            if (code >= HttpURLConnection.HTTP_BAD_REQUEST) {
+                body = connection.getErrorStream();
+            } else {
+                body = code == HttpURLConnection.HTTP_NO_CONTENT ? null : connection.getInputStream();
+            }
+            final Map<String, String> headers = new HashMap<>();
+            for (final Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+                // the status line is returned with null key
+                if (header.getKey() != null && !header.getValue().isEmpty()) {
+                    headers.put(header.getKey(), header.getValue().get(0));
+                }
+            }
+            response = new HttpResponse(code, headers, body);
+        } finally {
+            if (response == null) {
+                // the request failed, the connection can not be reused
+                connection.disconnect();
+            }
+        }
+        return response;
+    }
+}
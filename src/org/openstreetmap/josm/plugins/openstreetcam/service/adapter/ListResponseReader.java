@@ -0,0 +1,100 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.service.adapter;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.function.Consumer;
+import org.openstreetmap.josm.plugins.openstreetcam.service.entity.ListResponse;
+import com.google.gson.Gson;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.telenav.josm.common.entity.Status;
+
+
+/**
+ * Reads a {@code ListResponse} incrementally from a JSON stream. The current page items are read one by one and passed
+ * to a consumer as soon as they are parsed, in this way the response is never held in memory as text or as a parse
+ * tree.
+ *
+ * @author beataj
+ * @version $Revision$
+ * @param <T> the type of the current page items
+ */
+public class ListResponseReader<T> {
+
+    private static final String STATUS = "status";
+    private static final String TOTAL_FILTERED_ITEMS = "totalFilteredItems";
+    private static final String CURRENT_PAGE_ITEMS = "currentPageItems";
+    private static final Type TOTAL_FILTERED_ITEMS_TYPE = new TypeToken<List<Integer>>() {}.getType();
+
+    private final Gson gson;
+    private final TypeAdapter<T> itemAdapter;
+
+
+    /**
+     * Builds a new reader.
+     *
+     * @param gson the {@code Gson} object holding the registered type adapters
+     * @param itemType the type of the current page items
+     */
+    public ListResponseReader(final Gson gson, final Class<T> itemType) {
+        this.gson = gson;
+        this.itemAdapter = gson.getAdapter(itemType);
+    }
+
+
+    /**
+     * Reads a response. The returned response does not contain the current page items, these are passed to the given
+     * consumer.
+     *
+     * @param reader a {@code JsonReader} positioned at the beginning of the response
+     * @param consumer receives the current page items in the order in which they are read
+     * @return a {@code ListResponse} containing the status and the total number of items
+     * @throws IOException if the read operation failed
+     */
+    public ListResponse<T> read(final JsonReader reader, final Consumer<T> consumer) throws IOException {
+        Status status = null;
+        List<Integer> totalFilteredItems = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case STATUS:
+                    status = gson.fromJson(reader, Status.class);
+                    break;
+                case TOTAL_FILTERED_ITEMS:
+                    totalFilteredItems = gson.fromJson(reader, TOTAL_FILTERED_ITEMS_TYPE);
+                    break;
+                case CURRENT_PAGE_ITEMS:
+                    readItems(reader, consumer);
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        return new ListResponse<>(status, totalFilteredItems, null);
+    }
+
+    private void readItems(final JsonReader reader, final Consumer<T> consumer) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+        } else {
+            reader.beginArray();
+            while (reader.hasNext()) {
+                consumer.accept(itemAdapter.read(reader));
+            }
+            reader.endArray();
+        }
+    }
+}
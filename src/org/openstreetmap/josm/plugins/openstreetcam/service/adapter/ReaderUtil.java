@@ -9,9 +9,7 @@
 package org.openstreetmap.josm.plugins.openstreetcam.service.adapter;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import org.openstreetmap.josm.data.coor.LatLon;
+import java.util.Arrays;
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonToken;
 
@@ -24,6 +22,8 @@ import com.google.gson.stream.JsonToken;
  */
 final class ReaderUtil {
 
+    private static final int INITIAL_GEOMETRY_SIZE = 32;
+
     private ReaderUtil() {}
 
     static Double readDouble(final JsonReader reader) throws IOException {
@@ -67,28 +67,32 @@ final class ReaderUtil {
     }
 
     /**
-     * Reads a geometry that has the following format: [[lat1,lon1], [lat2,lon2],...[latn,lonn]].
+     * Reads a geometry that has the following format: [[lat1,lon1], [lat2,lon2],...[latn,lonn]]. The coordinates are
+     * read into a packed array, without creating an object for each point.
      *
      * @param reader a {@code JsonReader} object
-     * @return a list of {@code LatLon} objects
+     * @return an array having the lat1, lon1, lat2, lon2, ... format
      * @throws IOException if the read operation failed
      * @noinspection JavadocReference
      */
-    static List<LatLon> readGeometry(final JsonReader reader) throws IOException {
-        final List<LatLon> geometry = new ArrayList<>();
+    static double[] readGeometry(final JsonReader reader) throws IOException {
+        double[] geometry = new double[INITIAL_GEOMETRY_SIZE];
+        int size = 0;
         if (reader.peek() == JsonToken.NULL) {
             reader.nextNull();
         } else {
             reader.beginArray();
             while (reader.hasNext()) {
+                if (size == geometry.length) {
+                    geometry = Arrays.copyOf(geometry, size * 2);
+                }
                 reader.beginArray();
-                final Double lat = reader.nextDouble();
-                final Double lon = reader.nextDouble();
-                geometry.add(new LatLon(lat, lon));
+                geometry[size++] = reader.nextDouble();
+                geometry[size++] = reader.nextDouble();
                 reader.endArray();
             }
             reader.endArray();
         }
-        return geometry;
+        return size == geometry.length ? geometry : Arrays.copyOf(geometry, size);
     }
 }
\ No newline at end of file
@@ -15,7 +15,6 @@ import static org.openstreetmap.josm.plugins.openstreetcam.service.adapter.Const
 import static org.openstreetmap.josm.plugins.openstreetcam.service.adapter.Constants.SEGMENT_TO;
 import static org.openstreetmap.josm.plugins.openstreetcam.service.adapter.Constants.SEGMENT_WAY_ID;
 import java.io.IOException;
-import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.plugins.openstreetcam.entity.Segment;
 import org.openstreetmap.josm.plugins.openstreetcam.entity.SegmentBuilder;
 import com.google.gson.TypeAdapter;
@@ -74,10 +73,10 @@ public class SegmentTypeAdapter extends TypeAdapter<Segment> {
         writer.name(SEGMENT_COVERAGE).value(object.getCoverage());
         writer.name(SEGMENT_GEOMETRY);
         writer.beginArray();
-        for (final LatLon geom : object.getGeometry()) {
+        for (int i = 0; i < object.getGeometrySize(); i++) {
             writer.beginArray();
-            writer.value(geom.getY());
-            writer.value(geom.getX());
+            writer.value(object.getLat(i));
+            writer.value(object.getLon(i));
             writer.endArray();
         }
         writer.endArray();
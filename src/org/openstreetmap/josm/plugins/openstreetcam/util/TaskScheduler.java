@@ -0,0 +1,269 @@
+/*
+ * The code is licensed under the LGPL Version 3 license http://www.gnu.org/licenses/lgpl-3.0.en.html.
+ *
+ * The collected imagery is protected & available under the CC BY-SA version 4 International license.
+ * https://creativecommons.org/licenses/by-sa/4.0/legalcode.
+ *
+ * Copyright ©2017, Telenav, Inc. All Rights Reserved
+ */
+package org.openstreetmap.josm.plugins.openstreetcam.util;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openstreetmap.josm.Main;
+import org.openstreetmap.josm.plugins.openstreetcam.util.cnf.Config;
+
+
+/**
+ * Runs the background tasks of the plugin in separate lanes, in this way a burst of tasks of one kind does not delay
+ * the tasks of the other lanes. Every lane has its own threads, thread priority and queue. The interactive lane never
+ * drops a task; the queues of the other lanes are bounded, and if the queue is full either the oldest queued task is
+ * dropped (the lanes where a newer request supersedes the older ones) or the new task is dropped. A task submitted with
+ * a key supersedes the queued task having the same key, in this way only the latest request of a kind is executed.
+ * The tasks of the background lane are deferred while interactive tasks are running or waiting, but at most for a
+ * configured time.
+ *
+ * @author beataj
+ * @version $Revision$
+ */
+public final class TaskScheduler {
+
+    private static final String THREAD_NAME = "openstreetcam-";
+    private static final long KEEP_ALIVE_SECONDS = 60;
+    private static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    private static TaskScheduler instance;
+
+    private final Map<Lane, ThreadPoolExecutor> executors = new EnumMap<>(Lane.class);
+    private final Map<Lane, AtomicInteger> activeCounts = new EnumMap<>(Lane.class);
+    private final Map<Lane, AtomicLong> rejectedCounts = new EnumMap<>(Lane.class);
+    private final Map<Object, Future<?>> keyedTasks = new ConcurrentHashMap<>();
+    private final Object interactiveLock = new Object();
+    private final long maxDeferral;
+
+
+    private TaskScheduler() {
+        for (final Lane lane : Lane.values()) {
+            final int threads = lane == Lane.BACKGROUND
+                    ? Math.max(1, Config.getInstance().getPrefetchMaxDownloads()) : lane.threads;
+            final AtomicInteger threadCount = new AtomicInteger();
+            final String threadName = THREAD_NAME + lane.name().toLowerCase() + "-";
+            final ThreadFactory threadFactory = runnable -> {
+                final Thread thread = new Thread(runnable, threadName + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(lane.priority);
+                return thread;
+            };
+            final BlockingQueue<Runnable> queue = lane.capacity == UNBOUNDED ? new LinkedBlockingQueue<>()
+                    : new ArrayBlockingQueue<>(lane.capacity);
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS,
+                    TimeUnit.SECONDS, queue, threadFactory, rejectionHandler(lane));
+            executor.allowCoreThreadTimeOut(true);
+            executors.put(lane, executor);
+            activeCounts.put(lane, new AtomicInteger());
+            rejectedCounts.put(lane, new AtomicLong());
+        }
+        maxDeferral = Config.getInstance().getSchedulerMaxDeferral();
+    }
+
+
+    /**
+     * Returns the scheduler instance. A new instance is created if the previous one was shut down.
+     *
+     * @return a {@code TaskScheduler}
+     */
+    public static synchronized TaskScheduler getInstance() {
+        if (instance == null || instance.executors.get(Lane.INTERACTIVE).isShutdown()) {
+            instance = new TaskScheduler();
+        }
+        return instance;
+    }
+
+
+    /**
+     * Submits the given task to the given lane.
+     *
+     * @param lane the {@code Lane} running the task
+     * @param task the task to run
+     * @return a {@code Future} representing the task; the future is cancelled if the task is dropped from the queue
+     */
+    public Future<?> execute(final Lane lane, final Runnable task) {
+        return execute(lane, null, task);
+    }
+
+    /**
+     * Submits the given task to the given lane. The queued task submitted with the same key is cancelled, a task
+     * already running is not affected.
+     *
+     * @param lane the {@code Lane} running the task
+     * @param key identifies the kind of the task, null if the task does not supersede other tasks
+     * @param task the task to run
+     * @return a {@code Future} representing the task; the future is cancelled if the task is dropped from the queue or
+     * is superseded by a newer task
+     */
+    public Future<?> execute(final Lane lane, final Object key, final Runnable task) {
+        final AtomicInteger activeCount = activeCounts.get(lane);
+        final FutureTask<?> future = new FutureTask<Void>(() -> {
+            if (lane == Lane.BACKGROUND) {
+                awaitInteractiveIdle();
+            }
+            activeCount.incrementAndGet();
+            try {
+                task.run();
+            } catch (final RuntimeException e) {
+                Main.error(e, "Task failed in lane:" + lane);
+                throw e;
+            } finally {
+                activeCount.decrementAndGet();
+            }
+        }, null) {
+
+            /* called when the task completes or is cancelled */
+            @Override
+            protected void done() {
+                if (key != null) {
+                    keyedTasks.remove(key, this);
+                }
+                if (lane == Lane.INTERACTIVE) {
+                    synchronized (interactiveLock) {
+                        interactiveLock.notifyAll();
+                    }
+                }
+            }
+        };
+        if (key != null) {
+            final Future<?> previous = keyedTasks.put(key, future);
+            if (previous != null) {
+                previous.cancel(false);
+            }
+        }
+        executors.get(lane).execute(future);
+        return future;
+    }
+
+    /**
+     * Removes the cancelled tasks from the queue of the given lane.
+     *
+     * @param lane a {@code Lane}
+     */
+    public void purge(final Lane lane) {
+        executors.get(lane).purge();
+    }
+
+    /**
+     * Returns the number of tasks waiting in the queue of the given lane.
+     *
+     * @param lane a {@code Lane}
+     * @return the queue depth
+     */
+    public int getQueueDepth(final Lane lane) {
+        return executors.get(lane).getQueue().size();
+    }
+
+    /**
+     * Returns the number of tasks running in the given lane.
+     *
+     * @param lane a {@code Lane}
+     * @return the number of running tasks
+     */
+    public int getActiveCount(final Lane lane) {
+        return activeCounts.get(lane).get();
+    }
+
+    /**
+     * Returns the number of tasks dropped by the given lane because its queue was full.
+     *
+     * @param lane a {@code Lane}
+     * @return the number of dropped tasks
+     */
+    public long getRejectedCount(final Lane lane) {
+        return rejectedCounts.get(lane).get();
+    }
+
+    /**
+     * Shuts down all the lanes. Already submitted tasks are still executed, but new tasks are not accepted.
+     */
+    public void shutdown() {
+        executors.values().forEach(ThreadPoolExecutor::shutdown);
+    }
+
+    private boolean isInteractiveBusy() {
+        return getActiveCount(Lane.INTERACTIVE) > 0 || getQueueDepth(Lane.INTERACTIVE) > 0;
+    }
+
+    private void awaitInteractiveIdle() {
+        final long deadline = System.currentTimeMillis() + maxDeferral;
+        synchronized (interactiveLock) {
+            long remaining = maxDeferral;
+            while (remaining > 0 && isInteractiveBusy()) {
+                try {
+                    interactiveLock.wait(remaining);
+                    remaining = deadline - System.currentTimeMillis();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    remaining = 0;
+                }
+            }
+        }
+    }
+
+    private RejectedExecutionHandler rejectionHandler(final Lane lane) {
+        return (runnable, executor) -> {
+            if (!executor.isShutdown()) {
+                rejectedCounts.get(lane).incrementAndGet();
+                if (lane.dropOldest) {
+                    final Runnable oldest = executor.getQueue().poll();
+                    if (oldest instanceof Future) {
+                        ((Future<?>) oldest).cancel(false);
+                    }
+                    executor.execute(runnable);
+                } else if (runnable instanceof Future) {
+                    ((Future<?>) runnable).cancel(false);
+                }
+            }
+        };
+    }
+
+
+    /**
+     * Defines the lanes of the scheduler.
+     */
+    public enum Lane {
+
+        /** loads and displays the photo selected or hovered by the user; the tasks are never dropped */
+        INTERACTIVE(2, UNBOUNDED, Thread.NORM_PRIORITY + 1, false),
+
+        /** refreshes the data displayed in the map view; a newer refresh replaces the oldest queued one */
+        DATA(2, 4, Thread.NORM_PRIORITY, true),
+
+        /** loads the sequence of the selected photo; a newer request replaces the oldest queued one */
+        SEQUENCE(1, 2, Thread.NORM_PRIORITY, true),
+
+        /** background work such as prefetching; the tasks not fitting in the queue are dropped */
+        BACKGROUND(1, 64, Thread.MIN_PRIORITY, false);
+
+        private final int threads;
+        private final int capacity;
+        private final int priority;
+        private final boolean dropOldest;
+
+        Lane(final int threads, final int capacity, final int priority, final boolean dropOldest) {
+            this.threads = threads;
+            this.capacity = capacity;
+            this.priority = priority;
+            this.dropOldest = dropOldest;
+        }
+    }
+}
@@ -16,20 +16,16 @@
 package org.openstreetmap.josm.plugins.openstreetcam.util;
 
 import java.awt.Point;
-import java.awt.geom.Point2D;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 import org.openstreetmap.josm.Main;
 import org.openstreetmap.josm.data.Bounds;
 import org.openstreetmap.josm.data.coor.LatLon;
-import org.openstreetmap.josm.data.osm.BBox;
 import org.openstreetmap.josm.gui.MapView;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
-import org.openstreetmap.josm.plugins.openstreetcam.argument.Circle;
 import org.openstreetmap.josm.plugins.openstreetcam.entity.Photo;
+import org.openstreetmap.josm.plugins.openstreetcam.entity.PhotoStore;
+import org.openstreetmap.josm.plugins.openstreetcam.index.PhotoIndex;
 import com.telenav.josm.common.argument.BoundingBox;
 
 
@@ -49,7 +45,6 @@ public final class Util {
     private static final int TILE_SIZE = 1024;
     private static final int ZOOM1_SCALE = 78206;
     private static final double RADIUS = 0.0003;
-    private static final double MAX_DISTANCE = 2.0;
     private static final int EXTENSION_DISTANCE = 500;
 
 
@@ -68,94 +63,89 @@ public final class Util {
     }
 
     /**
-     * Returns the photo near to the given location. The method returns null if there is no photo nearby.
+     * Returns the photo closest to the given location. Only the photos located at most at a few pixels away from the
+     * given point are taken into account. The method returns null if there is no photo nearby.
      *
-     * @param photos a list of {@code Photo}s
+     * @param photoIndex a {@code PhotoIndex} containing the photos
      * @param point a {@code Point} the location where the user clicked
      * @return a {@code Photo} object
      */
-    public static Photo nearbyPhoto(final List<Photo> photos, final Point point) {
+    public static Photo nearbyPhoto(final PhotoIndex photoIndex, final Point point) {
         final double maxDist = Main.getLayerManager().getEditLayer() != null ? POZ_DIST_DATA_LAYER : POZ_DIST;
+        final MapView mapView = Main.map.mapView;
+        final LatLon topLeft = mapView.getLatLon(point.getX() - maxDist, point.getY() - maxDist);
+        final LatLon bottomRight = mapView.getLatLon(point.getX() + maxDist, point.getY() + maxDist);
         Photo result = null;
-        for (final Photo photo : photos) {
-            final double dist = new Point2D.Double(point.getX(), point.getY())
-                    .distance(Main.map.mapView.getPoint(photo.getLocation()));
-            if (dist <= maxDist) {
+        double minDist = maxDist;
+        for (final Photo photo : photoIndex.search(Math.min(topLeft.lat(), bottomRight.lat()),
+                Math.min(topLeft.lon(), bottomRight.lon()), Math.max(topLeft.lat(), bottomRight.lat()),
+                Math.max(topLeft.lon(), bottomRight.lon()))) {
+            final double dist = point.distance(mapView.getPoint2D(photo.getLocation()));
+            if (dist <= minDist) {
                 result = photo;
-                break;
+                minDist = dist;
             }
         }
         return result;
     }
 
     /**
-     * Returns the photos that are near to the selected photo.
+     * Returns the photos that are near to the selected photo, ordered by their distance from the selected photo. The
+     * photos belonging to the same sequence as the selected photo are ignored.
      *
-     * @param photos a list of {@code Photo}s
+     * @param photoIndex a {@code PhotoIndex} containing the photos
      * @param selectedPhoto the currently selected {@code Photo}
      * @param size the number of nearby photos to return
-     * @return a set of {@code Photo}
+     * @return a list of {@code Photo}s
      */
-    public static Collection<Photo> nearbyPhotos(final List<Photo> photos, final Photo selectedPhoto, final int size) {
-        final BBox bbox = selectedPhoto.getLocation().toBBox(RADIUS);
-        final Map<Double, Photo> candidateMap = new TreeMap<>();
-        for (final Photo photo : photos) {
-            if (!photo.getSequenceId().equals(selectedPhoto.getSequenceId()) && bbox.bounds(photo.getLocation())) {
-                final double dist = selectedPhoto.getLocation().distance(photo.getLocation());
-                if (dist <= MAX_DISTANCE) {
-                    candidateMap.put(dist, photo);
-                }
-            }
-        }
-        return size < candidateMap.size() ? new ArrayList<>(candidateMap.values()).subList(0, size)
-                : candidateMap.values();
+    public static List<Photo> nearbyPhotos(final PhotoIndex photoIndex, final Photo selectedPhoto, final int size) {
+        final PhotoStore store = photoIndex.getStore();
+        return photoIndex.nearest(selectedPhoto.getLocation(), size, RADIUS,
+                position -> !store.isInSequence(position, selectedPhoto.getSequenceId()));
     }
 
     /**
-     * Verifies if the given mapView contains or not the given coordinate. If the {@code OsmDataLayer} is active and has
-     * data, then the coordinate is search in the available bounds.
+     * Returns the currently visible areas. If the {@code OsmDataLayer} is active and has data, then the parts of the
+     * data layer bounds that intersect the map view are returned, otherwise the map view bounds.
      *
      * @param mapView the current {@code MapView}
-     * @param latLon the coordinate to be checked
-     * @return boolean
+     * @return a list of {@code Bounds}
      */
-    public static boolean containsLatLon(final MapView mapView, final LatLon latLon) {
-        boolean contains = false;
-        if ((Main.getLayerManager().getActiveLayer() instanceof OsmDataLayer)
-                && Main.getLayerManager().getEditLayer() != null
-                && !mapView.getLayerManager().getEditLayer().data.getDataSourceBounds().isEmpty()) {
-            for (final Bounds bounds : Main.getLayerManager().getEditLayer().data.getDataSourceBounds()) {
-                if (bounds.contains(latLon)) {
-                    contains = true;
-                    break;
+    public static List<Bounds> visibleBounds(final MapView mapView) {
+        final List<Bounds> result = new ArrayList<>();
+        final Bounds viewBounds = mapView.getRealBounds();
+        final List<Bounds> osmDataLayerBounds = editLayerDataBounds();
+        if (osmDataLayerBounds != null && !osmDataLayerBounds.isEmpty()) {
+            for (final Bounds bounds : osmDataLayerBounds) {
+                if (viewBounds.intersects(bounds)) {
+                    result.add(new Bounds(Math.max(bounds.getMinLat(), viewBounds.getMinLat()),
+                            Math.max(bounds.getMinLon(), viewBounds.getMinLon()),
+                            Math.min(bounds.getMaxLat(), viewBounds.getMaxLat()),
+                            Math.min(bounds.getMaxLon(), viewBounds.getMaxLon())));
                 }
             }
         } else {
-            final Point point = mapView.getPoint(latLon);
-            contains = mapView.contains(point);
+            result.add(viewBounds);
         }
-        return contains;
+        return result;
     }
 
     /**
-     * Returns a list of circles representing the current search area. The method takes into consideration also the edit
-     * layer bounds.
+     * Verifies if the given coordinate is contained in any of the given areas.
      *
-     * @return list of {@code Circle}s
+     * @param areas a list of {@code Bounds}, usually obtained from the {@code visibleBounds} method
+     * @param latLon the coordinate to be checked
+     * @return boolean
      */
-    public static List<Circle> currentCircles() {
-        final List<Circle> result = new ArrayList<>();
-        final List<Bounds> osmDataLayerBounds = editLayerDataBounds();
-        if (osmDataLayerBounds != null && !osmDataLayerBounds.isEmpty()) {
-            for (final Bounds bounds : osmDataLayerBounds) {
-                if (Main.map.mapView.getRealBounds().intersects(bounds)) {
-                    result.add(new Circle(bounds));
-                }
+    public static boolean containsLatLon(final List<Bounds> areas, final LatLon latLon) {
+        boolean contains = false;
+        for (final Bounds bounds : areas) {
+            if (bounds.contains(latLon)) {
+                contains = true;
+                break;
             }
-        } else {
-            result.add(new Circle(Main.map.mapView.getRealBounds()));
         }
-        return result;
+        return contains;
     }
 
     /**
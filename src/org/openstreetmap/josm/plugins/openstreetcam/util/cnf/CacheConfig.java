@@ -24,6 +24,15 @@ public final class CacheConfig extends BaseConfig {
     private static final int DEFAULT_DISK_COUNT = 5000;
     private static final int DEFAULT_PREV_NEXT_COUNT = 5;
     private static final int DEFAULT_NEARBY_COUNT = 10;
+    private static final int TILE_MAX_COUNT = 256;
+    private static final int TILE_EXPIRATION = 300;
+    private static final int SEQUENCE_MAX_COUNT = 500;
+    private static final int SEQUENCE_MAX_AGE = 3600;
+    private static final int THUMBNAIL_SIZE = 20;
+    private static final int LARGE_THUMBNAIL_SIZE = 150;
+    private static final int HIGH_QUALITY_SIZE = 1500;
+    private static final int DECODED_SIZE = 64;
+    private static final int DISK_MAX_SIZE = 1024;
     private static final CacheConfig INSTANCE = new CacheConfig();
 
     /* default values to use if there is no user specific cache settings */
@@ -38,6 +47,25 @@ public final class CacheConfig extends BaseConfig {
     private final int maxPrevNextCount;
     private final int maxNearbyCount;
 
+    /* in-memory tile cache settings, the expiration is given in seconds */
+    private final int tileMaxCount;
+    private final int tileExpiration;
+
+    /* persistent sequence cache settings, the maximum age is given in seconds */
+    private final int sequenceMaxCount;
+    private final int sequenceMaxAge;
+
+    /* typical photo sizes in kilobytes, used for computing the memory budget of every photo type */
+    private final int thumbnailSize;
+    private final int largeThumbnailSize;
+    private final int highQualitySize;
+
+    /* memory budget of the decoded images, given in megabytes */
+    private final int decodedSize;
+
+    /* maximum total size of the photos stored on disk, given in megabytes */
+    private final int diskMaxSize;
+
 
     private CacheConfig() {
         super(CONFIG_FILE);
@@ -51,6 +79,18 @@ public final class CacheConfig extends BaseConfig {
         maxDiskCount = readIntegerProperty("max.disk.count", DEFAULT_DISK_COUNT);
         maxPrevNextCount = readIntegerProperty("max.prevNext.count", DEFAULT_PREV_NEXT_COUNT);
         maxNearbyCount = readIntegerProperty("max.nearby.count", DEFAULT_NEARBY_COUNT);
+
+        tileMaxCount = readIntegerProperty("tile.max.count", TILE_MAX_COUNT);
+        tileExpiration = readIntegerProperty("tile.expiration", TILE_EXPIRATION);
+
+        sequenceMaxCount = readIntegerProperty("sequence.max.count", SEQUENCE_MAX_COUNT);
+        sequenceMaxAge = readIntegerProperty("sequence.max.age", SEQUENCE_MAX_AGE);
+
+        thumbnailSize = readIntegerProperty("memory.thumbnail.size", THUMBNAIL_SIZE);
+        largeThumbnailSize = readIntegerProperty("memory.largeThumbnail.size", LARGE_THUMBNAIL_SIZE);
+        highQualitySize = readIntegerProperty("memory.highQuality.size", HIGH_QUALITY_SIZE);
+        decodedSize = readIntegerProperty("memory.decoded.size", DECODED_SIZE);
+        diskMaxSize = readIntegerProperty("disk.max.size", DISK_MAX_SIZE);
     }
 
 
@@ -90,4 +130,40 @@ public final class CacheConfig extends BaseConfig {
     public int getMaxNearbyCount() {
         return maxNearbyCount;
     }
+
+    public int getTileMaxCount() {
+        return tileMaxCount;
+    }
+
+    public int getTileExpiration() {
+        return tileExpiration;
+    }
+
+    public int getSequenceMaxCount() {
+        return sequenceMaxCount;
+    }
+
+    public int getSequenceMaxAge() {
+        return sequenceMaxAge;
+    }
+
+    public int getThumbnailSize() {
+        return thumbnailSize;
+    }
+
+    public int getLargeThumbnailSize() {
+        return largeThumbnailSize;
+    }
+
+    public int getHighQualitySize() {
+        return highQualitySize;
+    }
+
+    public int getDecodedSize() {
+        return decodedSize;
+    }
+
+    public int getDiskMaxSize() {
+        return diskMaxSize;
+    }
 }
\ No newline at end of file
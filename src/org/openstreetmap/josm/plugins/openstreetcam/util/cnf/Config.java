@@ -35,6 +35,19 @@ public final class Config extends BaseConfig {
     private static final int MAX_ZOOM = 18;
     private static final int MIN_DELAY = 500;
     private static final int MAX_DELAY = 30000;
+    private static final int MAX_THREADS = 6;
+    private static final int MAX_REQUESTS_PER_HOST = 4;
+    private static final int CONNECT_TIMEOUT = 10000;
+    private static final int READ_TIMEOUT = 30000;
+    private static final int TILE_ZOOM_OFFSET = 2;
+    private static final int TRACKS_MIN_ITEMS = 1000;
+    private static final int TRACKS_MAX_PARALLEL_PAGES = 4;
+    private static final int TRACKS_PAGE_TIME = 2000;
+    private static final int NEARBY_PHOTOS_TILE_ZOOM = 15;
+    private static final int PREFETCH_MAX_DOWNLOADS = 3;
+    private static final int PREFETCH_DOWNLOAD_TIME = 2000;
+    private static final int PREFETCH_MAX_AHEAD = 30;
+    private static final int SCHEDULER_MAX_DEFERRAL = 1000;
 
     private static final String CONFIG_FILE = "openstreetcam.properties";
     private static final Config INSTANCE = new Config();
@@ -45,15 +58,32 @@ public final class Config extends BaseConfig {
     private final String photoDetailsUrl;
     private final String feedbackUrl;
 
+    private final int serviceMaxThreads;
+    private final int serviceMaxRequestsPerHost;
+    private final int serviceConnectTimeout;
+    private final int serviceReadTimeout;
+    private final int photoConnectTimeout;
+    private final int photoReadTimeout;
+
     private final int nearbyPhotosMaxRadius;
     private final int nearbyPhotosMinRadius;
     private final int nearbyPhotosMaxItems;
+    private final int nearbyPhotosTileZoom;
 
 
     private final int closestPhotosMaxItems;
 
     private final int tracksMaxItems;
     private final int tracksMaxZoom;
+    private final int tracksTileZoomOffset;
+    private final int tracksMinItems;
+    private final int tracksMaxParallelPages;
+    private final int tracksPageTime;
+
+    private final int prefetchMaxDownloads;
+    private final int prefetchDownloadTime;
+    private final int prefetchMaxAhead;
+    private final int schedulerMaxDeferral;
 
     private final int preferencesMaxZoom;
     private final int mapPhotoZoom;
@@ -70,14 +100,31 @@ public final class Config extends BaseConfig {
         photoDetailsUrl = serviceBaseUrl + readProperty("service.details");
         feedbackUrl = readProperty("feedback.url");
 
+        serviceMaxThreads = readIntegerProperty("service.maxThreads", MAX_THREADS);
+        serviceMaxRequestsPerHost = readIntegerProperty("service.maxRequestsPerHost", MAX_REQUESTS_PER_HOST);
+        serviceConnectTimeout = readIntegerProperty("service.connectTimeout", CONNECT_TIMEOUT);
+        serviceReadTimeout = readIntegerProperty("service.readTimeout", READ_TIMEOUT);
+        photoConnectTimeout = readIntegerProperty("photo.connectTimeout", CONNECT_TIMEOUT);
+        photoReadTimeout = readIntegerProperty("photo.readTimeout", READ_TIMEOUT);
+
         nearbyPhotosMaxRadius = readIntegerProperty("nearbyPhotos.maxRadius", MAX_RADIUS);
         nearbyPhotosMinRadius = readIntegerProperty("nearbyPhotos.minRadius", MIN_RADIUS);
         nearbyPhotosMaxItems = readIntegerProperty("nearbyPhotos.maxItems", MAX_ITEMS);
+        nearbyPhotosTileZoom = readIntegerProperty("nearbyPhotos.tileZoom", NEARBY_PHOTOS_TILE_ZOOM);
 
         closestPhotosMaxItems = readIntegerProperty("closestPhotos.maxNumber", MAX_CLOSEST_ITEMS);
 
         tracksMaxItems = readIntegerProperty("tracks.maxItems", MAX_ITEMS);
         tracksMaxZoom = readIntegerProperty("tracks.maxZoom", MAX_ZOOM);
+        tracksTileZoomOffset = readIntegerProperty("tracks.tileZoomOffset", TILE_ZOOM_OFFSET);
+        tracksMinItems = readIntegerProperty("tracks.minItems", TRACKS_MIN_ITEMS);
+        tracksMaxParallelPages = readIntegerProperty("tracks.maxParallelPages", TRACKS_MAX_PARALLEL_PAGES);
+        tracksPageTime = readIntegerProperty("tracks.pageTime", TRACKS_PAGE_TIME);
+
+        prefetchMaxDownloads = readIntegerProperty("prefetch.maxDownloads", PREFETCH_MAX_DOWNLOADS);
+        prefetchDownloadTime = readIntegerProperty("prefetch.downloadTime", PREFETCH_DOWNLOAD_TIME);
+        prefetchMaxAhead = readIntegerProperty("prefetch.maxAhead", PREFETCH_MAX_AHEAD);
+        schedulerMaxDeferral = readIntegerProperty("scheduler.maxDeferral", SCHEDULER_MAX_DEFERRAL);
 
 
         preferencesMaxZoom = readIntegerProperty("preferences.maxZoom", MAX_ZOOM);
@@ -109,6 +156,30 @@ public final class Config extends BaseConfig {
         return feedbackUrl;
     }
 
+    public int getServiceMaxThreads() {
+        return serviceMaxThreads;
+    }
+
+    public int getServiceMaxRequestsPerHost() {
+        return serviceMaxRequestsPerHost;
+    }
+
+    public int getServiceConnectTimeout() {
+        return serviceConnectTimeout;
+    }
+
+    public int getServiceReadTimeout() {
+        return serviceReadTimeout;
+    }
+
+    public int getPhotoConnectTimeout() {
+        return photoConnectTimeout;
+    }
+
+    public int getPhotoReadTimeout() {
+        return photoReadTimeout;
+    }
+
     public int getNearbyPhotosMaxRadius() {
         return nearbyPhotosMaxRadius;
     }
@@ -121,6 +192,10 @@ public final class Config extends BaseConfig {
         return nearbyPhotosMaxItems;
     }
 
+    public int getNearbyPhotosTileZoom() {
+        return nearbyPhotosTileZoom;
+    }
+
     public int getTracksMaxItems() {
         return tracksMaxItems;
     }
@@ -129,6 +204,38 @@ public final class Config extends BaseConfig {
         return tracksMaxZoom;
     }
 
+    public int getTracksTileZoomOffset() {
+        return tracksTileZoomOffset;
+    }
+
+    public int getTracksMinItems() {
+        return tracksMinItems;
+    }
+
+    public int getTracksMaxParallelPages() {
+        return tracksMaxParallelPages;
+    }
+
+    public int getTracksPageTime() {
+        return tracksPageTime;
+    }
+
+    public int getPrefetchMaxDownloads() {
+        return prefetchMaxDownloads;
+    }
+
+    public int getPrefetchDownloadTime() {
+        return prefetchDownloadTime;
+    }
+
+    public int getPrefetchMaxAhead() {
+        return prefetchMaxAhead;
+    }
+
+    public int getSchedulerMaxDeferral() {
+        return schedulerMaxDeferral;
+    }
+
     public int getPreferencesMaxZoom() {
         return preferencesMaxZoom;
     }